@@ -0,0 +1,108 @@
+package de.halfbit.tinybus.wires;
+
+import java.util.ArrayList;
+
+import android.content.Intent;
+import android.os.BatteryManager;
+import android.test.AndroidTestCase;
+import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.wires.BatteryWire.BatteryLevelEvent;
+import de.halfbit.tinybus.wires.BatteryWire.BatteryLowEvent;
+
+public class BatteryWireTest extends AndroidTestCase {
+
+	public static class BatterySubscriber {
+		final ArrayList<Object> events = new ArrayList<Object>();
+
+		@Subscribe
+		public void onEvent(BatteryLevelEvent event) {
+			events.add(event);
+		}
+
+		@Subscribe
+		public void onEvent(BatteryLowEvent event) {
+			events.add(event);
+		}
+	}
+
+	private BatteryWire wire;
+	private BatterySubscriber subscriber;
+
+	private static Intent createBatteryChanged(int level, int plugged, int status, int temperature) {
+		return new Intent(Intent.ACTION_BATTERY_CHANGED)
+			.putExtra(BatteryManager.EXTRA_SCALE, 100)
+			.putExtra(BatteryManager.EXTRA_LEVEL, level)
+			.putExtra(BatteryManager.EXTRA_PLUGGED, plugged)
+			.putExtra(BatteryManager.EXTRA_STATUS, status)
+			.putExtra(BatteryManager.EXTRA_TEMPERATURE, temperature);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		TinyBus bus = new TinyBus(getContext());
+		subscriber = new BatterySubscriber();
+		bus.register(subscriber);
+		
+		// wire is created, but not started in a non-application context
+		wire = new BatteryWire();
+		bus.wire(wire);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		wire = null;
+		subscriber = null;
+		super.tearDown();
+	}
+
+	public void testRepeatedBroadcastsPostedOnce() {
+		for (int i = 0; i < 5; i++) {
+			wire.postEvent(createBatteryChanged(50, BatteryManager.BATTERY_PLUGGED_AC,
+					BatteryManager.BATTERY_STATUS_CHARGING, 250));
+		}
+
+		assertEquals(1, subscriber.events.size());
+		BatteryLevelEvent event = (BatteryLevelEvent) subscriber.events.get(0);
+		assertEquals(50, event.level);
+		assertTrue(event.isPluggedAc());
+		assertTrue(event.isCharging());
+		assertEquals(4, wire.getSuppressedEventsCount());
+	}
+
+	public void testTemperatureChangeSuppressed() {
+		wire.postEvent(createBatteryChanged(50, 0, 0, 250));
+		wire.postEvent(createBatteryChanged(50, 0, 0, 260));
+		wire.postEvent(createBatteryChanged(50, 0, 0, 270));
+
+		assertEquals(1, subscriber.events.size());
+		assertEquals(2, wire.getSuppressedEventsCount());
+	}
+
+	public void testStateChangePosted() {
+		wire.postEvent(createBatteryChanged(50, 0, 0, 250));
+		wire.postEvent(createBatteryChanged(50, 0, 0, 250));
+		wire.postEvent(createBatteryChanged(49, 0, 0, 250));
+		wire.postEvent(createBatteryChanged(49, BatteryManager.BATTERY_PLUGGED_USB, 0, 250));
+		wire.postEvent(createBatteryChanged(49, BatteryManager.BATTERY_PLUGGED_USB,
+				BatteryManager.BATTERY_STATUS_CHARGING, 250));
+		wire.postEvent(createBatteryChanged(49, BatteryManager.BATTERY_PLUGGED_USB,
+				BatteryManager.BATTERY_STATUS_CHARGING, 250));
+
+		assertEquals(4, subscriber.events.size());
+		assertEquals(49, ((BatteryLevelEvent) subscriber.events.get(1)).level);
+		assertTrue(((BatteryLevelEvent) subscriber.events.get(2)).isPluggedUsb());
+		assertTrue(((BatteryLevelEvent) subscriber.events.get(3)).isCharging());
+		assertEquals(2, wire.getSuppressedEventsCount());
+	}
+
+	public void testLowBatteryNotConflated() {
+		wire.postEvent(new Intent(Intent.ACTION_BATTERY_LOW));
+		wire.postEvent(new Intent(Intent.ACTION_BATTERY_LOW));
+
+		assertEquals(2, subscriber.events.size());
+		assertEquals(0, wire.getSuppressedEventsCount());
+	}
+
+}
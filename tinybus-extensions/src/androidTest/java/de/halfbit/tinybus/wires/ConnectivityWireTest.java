@@ -0,0 +1,191 @@
+package de.halfbit.tinybus.wires;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.net.NetworkInfo.DetailedState;
+import android.test.AndroidTestCase;
+import android.telephony.TelephonyManager;
+import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.wires.ConnectivityWire.ConnectionEvent;
+import de.halfbit.tinybus.wires.ConnectivityWire.ConnectionStateEvent;
+
+public class ConnectivityWireTest extends AndroidTestCase {
+
+	/** Wire reporting given network instead of querying the system. */
+	public static class TestConnectivityWire extends ConnectivityWire {
+		NetworkInfo networkInfo;
+
+		public TestConnectivityWire(Class<? extends ConnectionStateEvent> producedEventClass) {
+			super(producedEventClass);
+		}
+
+		@Override
+		NetworkInfo getActiveNetworkInfo() {
+			return networkInfo;
+		}
+	}
+
+	public static class StateSubscriber {
+		final ArrayList<ConnectionStateEvent> events = new ArrayList<ConnectionStateEvent>();
+
+		@Subscribe
+		public void onEvent(ConnectionStateEvent event) {
+			events.add(event);
+		}
+	}
+
+	public static class ConnectionSubscriber {
+		final ArrayList<ConnectionEvent> events = new ArrayList<ConnectionEvent>();
+
+		@Subscribe
+		public void onEvent(ConnectionEvent event) {
+			events.add(event);
+		}
+	}
+
+	private TinyBus bus;
+
+	/** Creates network info through its hidden constructor. */
+	private static NetworkInfo createNetworkInfo(int type, int subtype, String extraInfo)
+			throws Exception {
+		Constructor<NetworkInfo> constructor = NetworkInfo.class.getDeclaredConstructor(
+				int.class, int.class, String.class, String.class);
+		constructor.setAccessible(true);
+		NetworkInfo networkInfo = constructor.newInstance(type, subtype, "type", "subtype");
+
+		Method setDetailedState = NetworkInfo.class.getDeclaredMethod("setDetailedState",
+				DetailedState.class, String.class, String.class);
+		setDetailedState.setAccessible(true);
+		setDetailedState.invoke(networkInfo, DetailedState.CONNECTED, null, extraInfo);
+		return networkInfo;
+	}
+
+	private TestConnectivityWire createWire(Class<? extends ConnectionStateEvent> eventClass) {
+		// wire is created, but not started in a non-application context
+		TestConnectivityWire wire = new TestConnectivityWire(eventClass);
+		bus.wire(wire);
+		return wire;
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		bus = new TinyBus(getContext());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		super.tearDown();
+	}
+
+	public void testRepeatedStateBroadcastsPostedOnce() {
+		StateSubscriber subscriber = new StateSubscriber();
+		bus.register(subscriber);
+
+		TestConnectivityWire wire = createWire(ConnectionStateEvent.class);
+		for (int i = 0; i < 5; i++) {
+			wire.postEvent();
+		}
+
+		assertEquals(1, subscriber.events.size());
+		assertFalse(subscriber.events.get(0).isConnected());
+		assertEquals(4, wire.getSuppressedEventsCount());
+	}
+
+	public void testRepeatedConnectionBroadcastsPostedOnce() {
+		ConnectionSubscriber subscriber = new ConnectionSubscriber();
+		bus.register(subscriber);
+
+		TestConnectivityWire wire = createWire(ConnectionEvent.class);
+		for (int i = 0; i < 3; i++) {
+			wire.postEvent();
+		}
+
+		assertEquals(1, subscriber.events.size());
+		ConnectionEvent event = subscriber.events.get(0);
+		assertFalse(event.isConnected());
+		assertEquals(ConnectionEvent.CONNECTION_TYPE_UNKNOWN, event.getConnectionType());
+		assertEquals(2, wire.getSuppressedEventsCount());
+	}
+
+	public void testSameNetworkSuppressed() throws Exception {
+		ConnectionSubscriber subscriber = new ConnectionSubscriber();
+		bus.register(subscriber);
+
+		TestConnectivityWire wire = createWire(ConnectionEvent.class);
+		wire.networkInfo = createNetworkInfo(ConnectivityManager.TYPE_WIFI, 0, "home");
+		wire.postEvent();
+
+		// every broadcast delivers a new, but equal network info
+		wire.networkInfo = createNetworkInfo(ConnectivityManager.TYPE_WIFI, 0, "home");
+		wire.postEvent();
+		wire.postEvent();
+
+		assertEquals(1, subscriber.events.size());
+		assertTrue(subscriber.events.get(0).isConnected());
+		assertEquals(2, wire.getSuppressedEventsCount());
+	}
+
+	public void testNetworkTypeChangePosted() throws Exception {
+		ConnectionSubscriber subscriber = new ConnectionSubscriber();
+		bus.register(subscriber);
+
+		TestConnectivityWire wire = createWire(ConnectionEvent.class);
+		NetworkInfo wifi = createNetworkInfo(ConnectivityManager.TYPE_WIFI, 0, "home");
+		NetworkInfo ethernet = createNetworkInfo(ConnectivityManager.TYPE_ETHERNET, 0, null);
+		wire.networkInfo = wifi;
+		wire.postEvent();
+		wire.networkInfo = ethernet;
+		wire.postEvent();
+
+		// both networks are fast, but network info must be actual
+		assertEquals(2, subscriber.events.size());
+		assertEquals(ConnectionEvent.CONNECTION_TYPE_FAST, subscriber.events.get(0).getConnectionType());
+		assertEquals(ConnectionEvent.CONNECTION_TYPE_FAST, subscriber.events.get(1).getConnectionType());
+		assertSame(wifi, subscriber.events.get(0).mNetworkInfo);
+		assertSame(ethernet, subscriber.events.get(1).mNetworkInfo);
+		assertEquals(0, wire.getSuppressedEventsCount());
+	}
+
+	public void testNetworkSubtypeAndExtraInfoChangePosted() throws Exception {
+		ConnectionSubscriber subscriber = new ConnectionSubscriber();
+		bus.register(subscriber);
+
+		TestConnectivityWire wire = createWire(ConnectionEvent.class);
+		wire.networkInfo = createNetworkInfo(ConnectivityManager.TYPE_MOBILE,
+				TelephonyManager.NETWORK_TYPE_HSPA, "apn");
+		wire.postEvent();
+		wire.networkInfo = createNetworkInfo(ConnectivityManager.TYPE_MOBILE,
+				TelephonyManager.NETWORK_TYPE_LTE, "apn");
+		wire.postEvent();
+		wire.networkInfo = createNetworkInfo(ConnectivityManager.TYPE_WIFI, 0, "home");
+		wire.postEvent();
+		wire.networkInfo = createNetworkInfo(ConnectivityManager.TYPE_WIFI, 0, "office");
+		wire.postEvent();
+
+		assertEquals(4, subscriber.events.size());
+		assertEquals(0, wire.getSuppressedEventsCount());
+	}
+
+	public void testStateEventIgnoresNetworkChange() throws Exception {
+		StateSubscriber subscriber = new StateSubscriber();
+		bus.register(subscriber);
+
+		TestConnectivityWire wire = createWire(ConnectionStateEvent.class);
+		wire.networkInfo = createNetworkInfo(ConnectivityManager.TYPE_WIFI, 0, "home");
+		wire.postEvent();
+		wire.networkInfo = createNetworkInfo(ConnectivityManager.TYPE_ETHERNET, 0, null);
+		wire.postEvent();
+
+		assertEquals(1, subscriber.events.size());
+		assertTrue(subscriber.events.get(0).isConnected());
+		assertEquals(1, wire.getSuppressedEventsCount());
+	}
+
+}
@@ -0,0 +1,217 @@
+package de.halfbit.tinybus.wires;
+
+import java.util.ArrayList;
+
+import android.test.AndroidTestCase;
+import de.halfbit.tinybus.Produce;
+import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.TinyBus;
+
+public class DemandDrivenWireTest extends AndroidTestCase {
+
+	public static class BaseStateEvent {}
+
+	public static class StateEvent extends BaseStateEvent {
+		public final int state;
+
+		public StateEvent(int state) {
+			this.state = state;
+		}
+	}
+
+	public static class OtherEvent {}
+
+	public static class TestWire extends DemandDrivenWire {
+		int activations;
+		int deactivations;
+		StateEvent event;
+
+		public TestWire() {
+			super(StateEvent.class);
+		}
+
+		@Override
+		protected void onActivate() {
+			activations++;
+			event = new StateEvent(activations);
+		}
+
+		@Override
+		protected void onDeactivate() {
+			deactivations++;
+			event = null;
+		}
+
+		@Produce
+		public StateEvent getStateEvent() {
+			return event;
+		}
+	}
+
+	public static class StateSubscriber {
+		final ArrayList<StateEvent> events = new ArrayList<StateEvent>();
+
+		@Subscribe
+		public void onEvent(StateEvent event) {
+			events.add(event);
+		}
+	}
+
+	public static class BaseStateSubscriber {
+		@Subscribe
+		public void onEvent(BaseStateEvent event) { }
+	}
+
+	public static class OtherSubscriber {
+		@Subscribe
+		public void onEvent(OtherEvent event) { }
+	}
+
+	private TinyBus bus;
+	private TestWire wire;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		// wire is created, but not started in a non-application context
+		bus = new TinyBus(getContext());
+		wire = new TestWire();
+		bus.wire(wire);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		wire = null;
+		super.tearDown();
+	}
+
+	public void testInactiveWithoutSubscribers() {
+		wire.onStart();
+		assertFalse(wire.isActive());
+		assertEquals(0, wire.activations);
+
+		// subscribers of other events do not activate wire
+		bus.register(new OtherSubscriber());
+		assertFalse(wire.isActive());
+		assertEquals(0, wire.activations);
+	}
+
+	public void testActivatedOnStartWithSubscriber() {
+		StateSubscriber subscriber = new StateSubscriber();
+		bus.register(subscriber);
+
+		wire.onStart();
+		assertTrue(wire.isActive());
+		assertEquals(1, wire.activations);
+
+		// producer is called after activation
+		assertEquals(1, subscriber.events.size());
+		assertEquals(1, subscriber.events.get(0).state);
+	}
+
+	public void testActivatedByFirstSubscriber() {
+		wire.onStart();
+
+		StateSubscriber subscriber1 = new StateSubscriber();
+		bus.register(subscriber1);
+		assertTrue(wire.isActive());
+		assertEquals(1, wire.activations);
+		assertEquals(1, subscriber1.events.size());
+		assertEquals(1, subscriber1.events.get(0).state);
+
+		StateSubscriber subscriber2 = new StateSubscriber();
+		bus.register(subscriber2);
+		assertEquals(1, wire.activations);
+		assertEquals(1, subscriber2.events.size());
+		assertEquals(1, subscriber2.events.get(0).state);
+	}
+
+	public void testDeactivatedByLastSubscriberGone() {
+		wire.onStart();
+
+		StateSubscriber subscriber1 = new StateSubscriber();
+		StateSubscriber subscriber2 = new StateSubscriber();
+		bus.register(subscriber1);
+		bus.register(subscriber2);
+
+		bus.unregister(subscriber1);
+		assertTrue(wire.isActive());
+		assertEquals(0, wire.deactivations);
+
+		bus.unregister(subscriber2);
+		assertFalse(wire.isActive());
+		assertEquals(1, wire.deactivations);
+
+		// wire gets activated again
+		bus.register(subscriber1);
+		assertTrue(wire.isActive());
+		assertEquals(2, wire.activations);
+	}
+
+	public void testActivatedBySupertypeSubscriber() {
+		bus.setEventInheritance(true);
+		wire.onStart();
+
+		BaseStateSubscriber subscriber = new BaseStateSubscriber();
+		bus.register(subscriber);
+		assertTrue(wire.isActive());
+		assertEquals(1, wire.activations);
+
+		bus.unregister(subscriber);
+		assertFalse(wire.isActive());
+		assertEquals(1, wire.deactivations);
+	}
+
+	public void testSupertypeSubscriberIgnoredWithoutInheritance() {
+		wire.onStart();
+		bus.register(new BaseStateSubscriber());
+		assertFalse(wire.isActive());
+		assertEquals(0, wire.activations);
+	}
+
+	public void testDeactivatedOnStop() {
+		wire.onStart();
+		bus.register(new StateSubscriber());
+		assertTrue(wire.isActive());
+
+		wire.onStop();
+		assertFalse(wire.isActive());
+		assertEquals(1, wire.deactivations);
+		assertFalse(bus.hasRegistered(wire));
+
+		// stopped wire ignores new subscribers
+		bus.register(new StateSubscriber());
+		assertFalse(wire.isActive());
+		assertEquals(1, wire.activations);
+	}
+
+	public void testReactivationInSamePassProducesActualEvent() {
+		wire.onStart();
+
+		final StateSubscriber subscriber1 = new StateSubscriber();
+		final StateSubscriber subscriber2 = new StateSubscriber();
+
+		// all registrations below are processed in a single pass
+		bus.register(new Object() {
+			@Subscribe
+			public void onEvent(OtherEvent event) {
+				bus.register(subscriber1);
+				bus.unregister(subscriber1);
+				bus.register(subscriber2);
+			}
+		});
+		bus.post(new OtherEvent());
+
+		assertEquals(2, wire.activations);
+		assertEquals(1, wire.deactivations);
+
+		assertEquals(1, subscriber1.events.size());
+		assertEquals(1, subscriber1.events.get(0).state);
+
+		// memoized event of the first activation must not be delivered
+		assertEquals(1, subscriber2.events.size());
+		assertEquals(2, subscriber2.events.get(0).state);
+	}
+
+}
@@ -0,0 +1,146 @@
+package de.halfbit.tinybus.wires;
+
+import junit.framework.TestCase;
+import android.hardware.Sensor;
+import de.halfbit.tinybus.wires.SensorWire.AccelerometerEvent;
+import de.halfbit.tinybus.wires.SensorWire.LightEvent;
+import de.halfbit.tinybus.wires.SensorWire.SampleRing;
+import de.halfbit.tinybus.wires.SensorWire.SensorWindowEvent;
+
+public class SensorWireTest extends TestCase {
+
+	private static final float DELTA = 0.0001f;
+	private static final long WINDOW_NANOS = 100;
+
+	private static SensorWindowEvent aggregate(SampleRing ring, int axes) {
+		SensorWindowEvent event = ring.aggregate(Sensor.TYPE_ACCELEROMETER);
+		assertEquals(axes, event.mean.length);
+		return event;
+	}
+
+	public void testAggregateSingleAxis() {
+		SampleRing ring = new SampleRing(16, WINDOW_NANOS, 1);
+		ring.add(10, new float[] {1});
+		ring.add(20, new float[] {-2});
+		ring.add(30, new float[] {3});
+		ring.add(40, new float[] {6});
+
+		SensorWindowEvent event = aggregate(ring, 1);
+		assertEquals(4, event.samples);
+		assertEquals(40, event.timestamp);
+		assertEquals(2f, event.mean[0], DELTA);
+		assertEquals(-2f, event.min[0], DELTA);
+		assertEquals(6f, event.max[0], DELTA);
+		assertEquals((float) Math.sqrt((1 + 4 + 9 + 36) / 4f), event.rms[0], DELTA);
+	}
+
+	public void testAggregateAxesIndependently() {
+		SampleRing ring = new SampleRing(16, WINDOW_NANOS, 3);
+		ring.add(10, new float[] {1, 10, -3});
+		ring.add(20, new float[] {3, 20, -4});
+
+		SensorWindowEvent event = aggregate(ring, 3);
+		assertEquals(2, event.samples);
+
+		assertEquals(2f, event.mean[0], DELTA);
+		assertEquals(15f, event.mean[1], DELTA);
+		assertEquals(-3.5f, event.mean[2], DELTA);
+
+		assertEquals(1f, event.min[0], DELTA);
+		assertEquals(10f, event.min[1], DELTA);
+		assertEquals(-4f, event.min[2], DELTA);
+
+		assertEquals(3f, event.max[0], DELTA);
+		assertEquals(20f, event.max[1], DELTA);
+		assertEquals(-3f, event.max[2], DELTA);
+
+		assertEquals((float) Math.sqrt(10 / 2f), event.rms[0], DELTA);
+		assertEquals((float) Math.sqrt(500 / 2f), event.rms[1], DELTA);
+		assertEquals((float) Math.sqrt(25 / 2f), event.rms[2], DELTA);
+	}
+
+	public void testMissingValuesAreZero() {
+		SampleRing ring = new SampleRing(16, WINDOW_NANOS, 3);
+		ring.add(10, new float[] {5});
+
+		SensorWindowEvent event = aggregate(ring, 3);
+		assertEquals(5f, event.mean[0], DELTA);
+		assertEquals(0f, event.mean[1], DELTA);
+		assertEquals(0f, event.max[2], DELTA);
+	}
+
+	public void testWindowOver() {
+		SampleRing ring = new SampleRing(16, WINDOW_NANOS, 1);
+		assertFalse(ring.isWindowOver(1000)); // empty ring
+
+		ring.add(50, new float[] {1});
+		assertFalse(ring.isWindowOver(149));
+		assertTrue(ring.isWindowOver(150));
+
+		// new window starts with the first sample after clear
+		ring.clear();
+		ring.add(150, new float[] {2});
+		assertFalse(ring.isWindowOver(200));
+		assertTrue(ring.isWindowOver(250));
+
+		SensorWindowEvent event = aggregate(ring, 1);
+		assertEquals(1, event.samples);
+		assertEquals(2f, event.mean[0], DELTA);
+	}
+
+	public void testFullRingOverwritesOldest() {
+		SampleRing ring = new SampleRing(2, WINDOW_NANOS, 1);
+		ring.add(10, new float[] {1});
+		ring.add(20, new float[] {2});
+		ring.add(30, new float[] {4});
+
+		SensorWindowEvent event = aggregate(ring, 1);
+		assertEquals(2, event.samples);
+		assertEquals(30, event.timestamp);
+		assertEquals(3f, event.mean[0], DELTA);
+		assertEquals(2f, event.min[0], DELTA);
+		assertEquals(4f, event.max[0], DELTA);
+	}
+
+	public void testAxesPerSensorType() {
+		assertEquals(1, SensorWire.getAxes(Sensor.TYPE_LIGHT));
+		assertEquals(1, SensorWire.getAxes(Sensor.TYPE_PRESSURE));
+		assertEquals(3, SensorWire.getAxes(Sensor.TYPE_ACCELEROMETER));
+		assertEquals(3, SensorWire.getAxes(Sensor.TYPE_GYROSCOPE));
+	}
+
+	public void testLightSensorAggregatesOneValue() {
+		SampleRing ring = new SampleRing(16, WINDOW_NANOS, SensorWire.getAxes(Sensor.TYPE_LIGHT));
+
+		// light sensor reports three values, but only the first one is defined
+		ring.add(10, new float[] {100, 7, 7});
+		ring.add(20, new float[] {300, 7, 7});
+
+		SensorWindowEvent event = ring.aggregate(Sensor.TYPE_LIGHT);
+		assertTrue(event instanceof LightEvent);
+		assertEquals(Sensor.TYPE_LIGHT, event.sensorType);
+		assertEquals(1, event.mean.length);
+		assertEquals(1, event.rms.length);
+		assertEquals(200f, event.mean[0], DELTA);
+	}
+
+	public void testNewEventPerWindow() {
+		SampleRing ring = new SampleRing(16, WINDOW_NANOS, 3);
+		ring.add(10, new float[] {1, 2, 3});
+		SensorWindowEvent event1 = ring.aggregate(Sensor.TYPE_ACCELEROMETER);
+		ring.clear();
+
+		ring.add(200, new float[] {4, 5, 6});
+		SensorWindowEvent event2 = ring.aggregate(Sensor.TYPE_ACCELEROMETER);
+
+		assertTrue(event1 instanceof AccelerometerEvent);
+		assertNotSame(event1, event2);
+
+		// values of posted event stay untouched
+		assertEquals(1f, event1.mean[0], DELTA);
+		assertEquals(10, event1.timestamp);
+		assertEquals(4f, event2.mean[0], DELTA);
+		assertEquals(200, event2.timestamp);
+	}
+
+}
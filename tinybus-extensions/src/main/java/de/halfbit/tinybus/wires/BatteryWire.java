@@ -6,9 +6,8 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.BatteryManager;
 import de.halfbit.tinybus.Produce;
-import de.halfbit.tinybus.TinyBus.Wireable;
 
-public class BatteryWire extends Wireable {
+public class BatteryWire extends DemandDrivenWire {
 
 	//-- public events
 	
@@ -19,21 +18,33 @@ public class BatteryWire extends Wireable {
 		
 		public BatteryLevelEvent(Intent intent) {
 			this.intent = intent;
-			
+			this.level = getLevel(intent);
+		}
+		
+		static int getLevel(Intent intent) {
 			int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
 			if (scale == 0) {
-				this.level = 0;
-				
-			} else {
-				int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
-				level = level * 100 / scale;
-				if (level <= 0) {
-					level = 0;
-				} else if (level >= 100) {
-					level = 100;
-				}
-				this.level = level;
+				return 0;
 			}
+			int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+			level = level * 100 / scale;
+			if (level <= 0) {
+				level = 0;
+			} else if (level >= 100) {
+				level = 100;
+			}
+			return level;
+		}
+		
+		/** 
+		 * Returns <code>true</code> if the intent has same level, plugged and 
+		 * charging state as this event. Other values like temperature or 
+		 * voltage are ignored.
+		 */
+		boolean hasSameState(Intent intent) {
+			return level == getLevel(intent)
+					&& getPlugged() == getPlugged(intent)
+					&& isCharging() == isCharging(intent);
 		}
 
 		public boolean isPluggedAc() {
@@ -49,10 +60,18 @@ public class BatteryWire extends Wireable {
 		}
 		
 		public int getPlugged() {
-			return intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, -1);
+			return getPlugged(intent);
 		}
 		
 		public boolean isCharging() {
+			return isCharging(intent);
+		}
+		
+		static int getPlugged(Intent intent) {
+			return intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, -1);
+		}
+		
+		static boolean isCharging(Intent intent) {
 			final int status = intent.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
 			return status == BatteryManager.BATTERY_STATUS_CHARGING ||
                     status == BatteryManager.BATTERY_STATUS_FULL;
@@ -69,23 +88,17 @@ public class BatteryWire extends Wireable {
 		
 		@Override
 		public void onReceive(Context context, Intent intent) {
-			final String action = intent.getAction();
-			if (Intent.ACTION_BATTERY_CHANGED.equals(action)) {
-				mBatteryLevelEvent = new BatteryLevelEvent(intent);
-				bus.post(mBatteryLevelEvent);
-				
-			} else if (Intent.ACTION_BATTERY_LOW.equals(action)) {
-				bus.post(new BatteryLowEvent());
-				
-			} else if (Intent.ACTION_BATTERY_OKAY.equals(action)) {
-				bus.post(new BatteryOkayEvent());
-			}
+			postEvent(intent);
 		}
 	};
 	
 	private BatteryLevelEvent mBatteryLevelEvent;
 	
+	// diagnostics, accessed in main thread only
+	private int mSuppressedEventsCount;
+	
 	public BatteryWire() {
+		super(BatteryLevelEvent.class, BatteryLowEvent.class, BatteryOkayEvent.class);
 		mFilter = new IntentFilter();
 		mFilter.addAction(Intent.ACTION_BATTERY_CHANGED);
 		mFilter.addAction(Intent.ACTION_BATTERY_LOW);
@@ -93,21 +106,50 @@ public class BatteryWire extends Wireable {
 	}
 	
 	@Override
-	protected void onStart() {
-		bus.register(this);
-		context.registerReceiver(mReceiver, mFilter);
+	protected void onActivate() {
+		Intent intent = context.registerReceiver(mReceiver, mFilter);
+		if (intent != null) {
+			// sticky battery status is available immediately
+			mBatteryLevelEvent = new BatteryLevelEvent(intent);
+		}
 	}
 
 	@Override
-	protected void onStop() {
-		bus.unregister(this);
+	protected void onDeactivate() {
 		context.unregisterReceiver(mReceiver);
 		mBatteryLevelEvent = null;
 	}
 
+	/** 
+	 * Returns number of battery broadcasts, which did not change level, 
+	 * plugged or charging state and thus were not posted to the bus.
+	 */
+	public int getSuppressedEventsCount() {
+		return mSuppressedEventsCount;
+	}
+
 	@Produce
 	public BatteryLevelEvent getBatteryLevelEvent() {
 		return mBatteryLevelEvent;
 	}
 	
+	void postEvent(Intent intent) {
+		final String action = intent.getAction();
+		if (Intent.ACTION_BATTERY_CHANGED.equals(action)) {
+			if (mBatteryLevelEvent != null && mBatteryLevelEvent.hasSameState(intent)) {
+				// temperature or voltage change only
+				mSuppressedEventsCount++;
+				return;
+			}
+			mBatteryLevelEvent = new BatteryLevelEvent(intent);
+			bus.post(mBatteryLevelEvent);
+			
+		} else if (Intent.ACTION_BATTERY_LOW.equals(action)) {
+			bus.post(new BatteryLowEvent());
+			
+		} else if (Intent.ACTION_BATTERY_OKAY.equals(action)) {
+			bus.post(new BatteryOkayEvent());
+		}
+	}
+	
 }
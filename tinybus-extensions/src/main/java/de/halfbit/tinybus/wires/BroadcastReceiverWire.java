@@ -4,6 +4,9 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
 import de.halfbit.tinybus.Produce;
 import de.halfbit.tinybus.TinyBus.Wireable;
 
@@ -11,21 +14,41 @@ import de.halfbit.tinybus.TinyBus.Wireable;
  * Generic wire posting <code>Intent</code> object to the bus according to 
  * given configuration.
  * 
+ * <p>By default intents are received in the main thread. Call
+ * {@link #receiveInBackground()} to receive them in a background thread 
+ * shared by all wires instead. Use {@link #setIntentPredicate(IntentPredicate)}
+ * to drop irrelevant intents before they get posted to the bus.
+ * 
  * @author sergej
  */
 public class BroadcastReceiverWire extends Wireable {
 
+	/** 
+	 * Decides whether received intent has to be posted to the bus. 
+	 * It is called in the thread receiving intents.
+	 */
+	public interface IntentPredicate {
+		boolean accept(Intent intent);
+	}
+	
+	private static HandlerThread sReceiverThread;
+	
 	private final IntentFilter mFilter;
 	private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
 		@Override
 		public void onReceive(Context context, Intent intent) {
+			if (mPredicate != null && !mPredicate.accept(intent)) {
+				return;
+			}
 			mIntent = intent;
 			bus.post(intent);
 		}
 	};
 	
 	private Object mProducer;
-	private Intent mIntent;
+	private volatile Intent mIntent;
+	private IntentPredicate mPredicate;
+	private boolean mReceiveInBackground;
 	
 	public BroadcastReceiverWire(String action) {
 		mFilter = new IntentFilter(action); 
@@ -58,14 +81,54 @@ public class BroadcastReceiverWire extends Wireable {
 		}
 	}
 
+	/**
+	 * Receive intents in a shared background thread instead of the main
+	 * thread. Intents are still posted to the bus, thus subscribers get
+	 * them in the thread defined by their <code>@Subscribe</code> mode.
+	 * This method must be called before the wire is added to the bus.
+	 */
+	public BroadcastReceiverWire receiveInBackground() {
+		mReceiveInBackground = true;
+		return this;
+	}
+	
+	/**
+	 * Sets predicate deciding which received intents are posted to the bus.
+	 * This method must be called before the wire is added to the bus.
+	 */
+	public BroadcastReceiverWire setIntentPredicate(IntentPredicate predicate) {
+		mPredicate = predicate;
+		return this;
+	}
+	
+	private static synchronized Handler getReceiverHandler() {
+		if (sReceiverThread == null) {
+			// shared by all wires and kept alive as long as the process
+			sReceiverThread = new HandlerThread("tinybus-receiver", 
+					Process.THREAD_PRIORITY_BACKGROUND);
+			sReceiverThread.start();
+		}
+		return new Handler(sReceiverThread.getLooper());
+	}
+	
 	@Override
 	protected void onStart() {
-		mIntent = context.registerReceiver(mReceiver, mFilter);
+		Intent intent;
+		if (mReceiveInBackground) {
+			intent = context.registerReceiver(mReceiver, mFilter, null, getReceiverHandler());
+		} else {
+			intent = context.registerReceiver(mReceiver, mFilter);
+		}
+		if (intent != null && mPredicate != null && !mPredicate.accept(intent)) {
+			intent = null;
+		}
+		mIntent = intent;
+		
 		if (mProducer != null) {
 			bus.register(mProducer);
 		} else {
-			if (mIntent != null) {
-				bus.post(mIntent);
+			if (intent != null) {
+				bus.post(intent);
 			}
 		}
 	}
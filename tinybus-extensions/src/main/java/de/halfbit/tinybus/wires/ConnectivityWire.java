@@ -6,12 +6,10 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
-import android.os.Build;
 import android.telephony.TelephonyManager;
 import de.halfbit.tinybus.Produce;
-import de.halfbit.tinybus.TinyBus.Wireable;
 
-public class ConnectivityWire extends Wireable {
+public class ConnectivityWire extends DemandDrivenWire {
 
 	//-- public events
 
@@ -20,7 +18,11 @@ public class ConnectivityWire extends Wireable {
 		protected final boolean mConnected;
 		
 		public ConnectionStateEvent(NetworkInfo networkInfo) {
-			mConnected = networkInfo != null && networkInfo.isConnected();
+			mConnected = isConnected(networkInfo);
+		}
+		
+		static boolean isConnected(NetworkInfo networkInfo) {
+			return networkInfo != null && networkInfo.isConnected();
 		}
 		
 		public boolean isConnected() {
@@ -47,29 +49,48 @@ public class ConnectivityWire extends Wireable {
 		
 		public int getConnectionType() {
 			if (mConnectionType == -1) {
-				calculateConnectionType();
+				mConnectionType = getConnectionType(mNetworkInfo);
 			}
 			return mConnectionType;  
 		}
+		
+		/** 
+		 * Returns <code>true</code> if given network has same connected 
+		 * state as this event and, when connected, same type, subtype and 
+		 * extra info (e.g. Wi-Fi SSID) as network of this event. 
+		 */
+		boolean hasSameState(NetworkInfo networkInfo) {
+			if (mConnected != isConnected(networkInfo)) {
+				return false;
+			}
+			if (!mConnected) {
+				return true;
+			}
+			return mNetworkInfo.getType() == networkInfo.getType()
+					&& mNetworkInfo.getSubtype() == networkInfo.getSubtype()
+					&& equals(mNetworkInfo.getExtraInfo(), networkInfo.getExtraInfo());
+		}
+		
+		private static boolean equals(String value1, String value2) {
+			return value1 == null ? value2 == null : value1.equals(value2);
+		}
 
-		private void calculateConnectionType() {
-			if (mConnected) {
+		static int getConnectionType(NetworkInfo networkInfo) {
+			if (isConnected(networkInfo)) {
 				
-				switch (mNetworkInfo.getType()) {
+				switch (networkInfo.getType()) {
 					case ConnectivityManager.TYPE_WIFI:
 					case ConnectivityManager.TYPE_WIMAX:
 					case ConnectivityManager.TYPE_ETHERNET:
-						mConnectionType = CONNECTION_TYPE_FAST;
-						break;
+						return CONNECTION_TYPE_FAST;
 						
 					case ConnectivityManager.TYPE_MOBILE:
-						switch (mNetworkInfo.getSubtype()) {
+						switch (networkInfo.getSubtype()) {
 							case TelephonyManager.NETWORK_TYPE_LTE:
 							case TelephonyManager.NETWORK_TYPE_HSPAP:
 							case TelephonyManager.NETWORK_TYPE_HSPA:
 							case TelephonyManager.NETWORK_TYPE_EHRPD:
-								mConnectionType = CONNECTION_TYPE_4G;
-								break;
+								return CONNECTION_TYPE_4G;
 								
 							case TelephonyManager.NETWORK_TYPE_UMTS:
 							case TelephonyManager.NETWORK_TYPE_CDMA:
@@ -78,25 +99,22 @@ public class ConnectivityWire extends Wireable {
 							case TelephonyManager.NETWORK_TYPE_EVDO_0:
 							case TelephonyManager.NETWORK_TYPE_EVDO_A:
 							case TelephonyManager.NETWORK_TYPE_EVDO_B:
-								mConnectionType = CONNECTION_TYPE_3G;
-								break;
+								return CONNECTION_TYPE_3G;
 								
 							case TelephonyManager.NETWORK_TYPE_GPRS:
 							case TelephonyManager.NETWORK_TYPE_EDGE:
-								mConnectionType = CONNECTION_TYPE_2G;
-								break;
+								return CONNECTION_TYPE_2G;
 								
 							default:
-								mConnectionType = CONNECTION_TYPE_UNKNOWN;
+								return CONNECTION_TYPE_UNKNOWN;
 						}
-						break;
 						
 					default:
-						mConnectionType = CONNECTION_TYPE_UNKNOWN;
+						return CONNECTION_TYPE_UNKNOWN;
 				}				
 				
 			} else {
-				mConnectionType = CONNECTION_TYPE_UNKNOWN;
+				return CONNECTION_TYPE_UNKNOWN;
 			}
 		}
 		
@@ -121,33 +139,39 @@ public class ConnectivityWire extends Wireable {
 	private ConnectionStateEvent mConnectionStateEvent;
 	private ConnectionEvent mConnectionEvent;
 	
+	// diagnostics, accessed in main thread only
+	private int mSuppressedEventsCount;
+	
 	public ConnectivityWire(Class<? extends ConnectionStateEvent> producedEventClass) {
+		super(producedEventClass);
 		mpProducedEventClass = producedEventClass;
 		mFilter = new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION);
 	}
 	
 	@Override
-	protected void onStart() {
-		
-		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
-			// Older Android versions don't notify receiver immediately 
-			// after registration. Thus we query status manually for those.
-			postEvent();
-		}
-		
-		bus.register(this);
+	protected void onActivate() {
+		// Query current status for the producer, because older Android versions
+		// don't notify receiver immediately after registration.
+		updateEvent();
 		context.registerReceiver(mReceiver, mFilter);
 	}
 
 	@Override
-	protected void onStop() {
-		bus.unregister(this);
+	protected void onDeactivate() {
 		context.unregisterReceiver(mReceiver);
 		mConnectionStateEvent = null;
 		mConnectionEvent = null;
 		mConnectivityManager = null;
 	}
 
+	/** 
+	 * Returns number of connectivity broadcasts, which did not change
+	 * connection state or active network and thus were not posted to the bus.
+	 */
+	public int getSuppressedEventsCount() {
+		return mSuppressedEventsCount;
+	}
+
 	@Produce
 	public ConnectionStateEvent getConnectionStateEvent() {
 		return mConnectionStateEvent;
@@ -159,18 +183,39 @@ public class ConnectivityWire extends Wireable {
 	}
 	
 	void postEvent() {
-		if (mConnectivityManager == null) {
-			mConnectivityManager = (ConnectivityManager) 
-					context.getSystemService(Context.CONNECTIVITY_SERVICE);
+		ConnectionStateEvent event = updateEvent();
+		if (event == null) {
+			mSuppressedEventsCount++;
+		} else {
+			bus.post(event);
 		}
-		NetworkInfo networkInfo = mConnectivityManager.getActiveNetworkInfo();
+	}
+	
+	/** Returns new event or <code>null</code> if relevant state has not changed. */
+	private ConnectionStateEvent updateEvent() {
+		NetworkInfo networkInfo = getActiveNetworkInfo();
 		if (mpProducedEventClass.equals(ConnectionStateEvent.class)) {
+			if (mConnectionStateEvent != null 
+					&& mConnectionStateEvent.mConnected == ConnectionStateEvent.isConnected(networkInfo)) {
+				return null;
+			}
 			mConnectionStateEvent = new ConnectionStateEvent(networkInfo);
-			bus.post(mConnectionStateEvent);
+			return mConnectionStateEvent;
 			
 		} else {
+			if (mConnectionEvent != null && mConnectionEvent.hasSameState(networkInfo)) {
+				return null;
+			}
 			mConnectionEvent = new ConnectionEvent(networkInfo);
-			bus.post(mConnectionEvent);
+			return mConnectionEvent;
+		}
+	}
+	
+	NetworkInfo getActiveNetworkInfo() {
+		if (mConnectivityManager == null) {
+			mConnectivityManager = (ConnectivityManager) 
+					context.getSystemService(Context.CONNECTIVITY_SERVICE);
 		}
+		return mConnectivityManager.getActiveNetworkInfo();
 	}
 }
@@ -0,0 +1,103 @@
+package de.halfbit.tinybus.wires;
+
+import de.halfbit.tinybus.Bus.DemandCallbacks;
+import de.halfbit.tinybus.TinyBus.Wireable;
+
+/**
+ * Base class for wires holding system resources (sensor listeners,
+ * broadcast receivers, etc.) only while there is at least one subscriber
+ * for the events they produce.
+ *
+ * <p>Wire gets activated when it is started and one of its event types
+ * has a subscriber, or when the first subscriber of those event types
+ * gets registered later on. It gets deactivated when the last subscriber
+ * is gone or when the wire is stopped. With event inheritance enabled,
+ * subscribers of supertypes of produced events count as well.
+ *
+ * <p>Wire registers itself in the bus when started, thus its
+ * <code>@Produce</code> methods become available. Producers are called
+ * after {@link #onActivate()}, thus a wire can update its state there
+ * and return it from a producer method.
+ */
+public abstract class DemandDrivenWire extends Wireable implements DemandCallbacks {
+
+	private final Class<?>[] mEventClasses;
+	private boolean mActive;
+
+	protected DemandDrivenWire(Class<?>... eventClasses) {
+		if (eventClasses.length == 0) {
+			throw new IllegalArgumentException("At least one event class is required");
+		}
+		mEventClasses = eventClasses;
+	}
+
+	/** Acquire system resources required for producing events. */
+	protected abstract void onActivate();
+
+	/** Release system resources acquired in {@link #onActivate()}. */
+	protected abstract void onDeactivate();
+
+	protected boolean isActive() {
+		return mActive;
+	}
+
+	@Override
+	protected void onStart() {
+		// activate before registering, so that producers
+		// have actual events for already registered subscribers
+		updateActiveState();
+		bus.register(this);
+	}
+
+	@Override
+	protected void onStop() {
+		bus.unregister(this);
+		if (mActive) {
+			mActive = false;
+			onDeactivate();
+		}
+	}
+
+	@Override
+	public void onFirstSubscriber(Class<?> eventClass) {
+		if (isProducedEventClass(eventClass)) {
+			updateActiveState();
+		}
+	}
+
+	@Override
+	public void onLastSubscriberGone(Class<?> eventClass) {
+		if (isProducedEventClass(eventClass)) {
+			updateActiveState();
+		}
+	}
+
+	private boolean isProducedEventClass(Class<?> eventClass) {
+		for (Class<?> producedEventClass : mEventClasses) {
+			// supertype subscribers receive produced events with event inheritance
+			if (eventClass.isAssignableFrom(producedEventClass)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void updateActiveState() {
+		boolean active = false;
+		for (Class<?> eventClass : mEventClasses) {
+			if (bus.hasSubscribers(eventClass)) {
+				active = true;
+				break;
+			}
+		}
+
+		if (active != mActive) {
+			mActive = active;
+			if (active) {
+				onActivate();
+			} else {
+				onDeactivate();
+			}
+		}
+	}
+}
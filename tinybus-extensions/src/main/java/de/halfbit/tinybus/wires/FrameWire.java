@@ -0,0 +1,63 @@
+package de.halfbit.tinybus.wires;
+
+import android.content.Context;
+import android.os.Build;
+import android.view.Choreographer;
+import de.halfbit.tinybus.Bus;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.TinyBus.FrameScheduler;
+import de.halfbit.tinybus.TinyBus.Wireable;
+
+/**
+ * Wire aligning delivery of events to <code>Subscribe.Mode.Frame</code>
+ * subscribers with display frames. Buffered events get delivered from
+ * <code>Choreographer</code> frame callback, right before views are
+ * measured and drawn. On devices older than Jelly Bean, default 
+ * scheduler of the bus is used.
+ * 
+ * @author sergej
+ */
+public class FrameWire extends Wireable {
+
+	private FrameScheduler mScheduler;
+	
+	@Override
+	protected void onCreate(Bus bus, Context context) {
+		super.onCreate(bus, context);
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			mScheduler = new ChoreographerScheduler();
+			((TinyBus) bus).setFrameScheduler(mScheduler);
+		}
+	}
+	
+	@Override
+	protected void onDestroy() {
+		if (mScheduler != null) {
+			((TinyBus) bus).setFrameScheduler(null);
+			mScheduler = null;
+		}
+		super.onDestroy();
+	}
+	
+	static class ChoreographerScheduler implements FrameScheduler, Choreographer.FrameCallback {
+
+		private final Choreographer mChoreographer = Choreographer.getInstance();
+		private Runnable mTask;
+		
+		@Override
+		public void scheduleFrame(Runnable task) {
+			mTask = task;
+			mChoreographer.postFrameCallback(this);
+		}
+
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			final Runnable task = mTask;
+			mTask = null;
+			if (task != null) {
+				task.run();
+			}
+		}
+	}
+	
+}
@@ -6,9 +6,8 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.PowerManager;
 import de.halfbit.tinybus.Produce;
-import de.halfbit.tinybus.TinyBus.Wireable;
 
-public class ScreenEventWire extends Wireable {
+public class ScreenEventWire extends DemandDrivenWire {
 
 	// -- public events
 
@@ -42,28 +41,27 @@ public class ScreenEventWire extends Wireable {
 		}
 	};
 
+	public ScreenEventWire() {
+		super(ScreenEvent.class);
+	}
+	
 	@Override
 	@SuppressWarnings("deprecation")
-	protected void onStart() {
-		super.onStart();
-		context.registerReceiver(mReceiver, new IntentFilter(Intent.ACTION_SCREEN_ON));
-		context.registerReceiver(mReceiver, new IntentFilter(Intent.ACTION_SCREEN_OFF));
+	protected void onActivate() {
+		IntentFilter filter = new IntentFilter(Intent.ACTION_SCREEN_ON);
+		filter.addAction(Intent.ACTION_SCREEN_OFF);
+		context.registerReceiver(mReceiver, filter);
 		
-		// send first event immediately
+		// producer delivers current state immediately
 		PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
 		mLastScreenEvent = new ScreenEvent(pm.isScreenOn());
-		bus.post(mLastScreenEvent);
-		
-		bus.register(this);
 	}
 
 	@Override
-	protected void onStop() {
-		bus.unregister(this);
+	protected void onDeactivate() {
 		context.unregisterReceiver(mReceiver);
 		mLastScreenEvent = null;
-		super.onStop();
-	};
+	}
 
 	@Produce
 	public ScreenEvent getLastScreenEvent() {
@@ -0,0 +1,347 @@
+package de.halfbit.tinybus.wires;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+/**
+ * Generic wire posting aggregated sensor data to the bus. Instead of
+ * posting an event for every sensor sample, this wire collects samples
+ * of a time window and posts a single event with mean, min, max and RMS
+ * values of each sensor axis, when the window is over.
+ *
+ * <p>Samples are received in a dedicated background thread and stored in
+ * a primitive ring buffer, thus no objects are allocated per sample. If
+ * there are more samples in a window than the buffer can hold, the oldest
+ * samples get overwritten. Where supported, samples are batched by the
+ * sensor hardware for up to the window length. Only values, which the 
+ * sensor type actually reports, are aggregated, e.g. a single value of 
+ * the light sensor.
+ *
+ * <p>A new immutable event is posted for every window, thus subscribers 
+ * can safely read it in any thread and keep it as long as they need.
+ *
+ * <p>Sensors reporting on change only, like light or proximity sensors, 
+ * deliver no samples while the value stays the same. A window is closed 
+ * by the first sample arriving after it is over, thus such sensors post 
+ * events less often than once per window, but never with stale values.
+ *
+ * <p>Accelerometer, gyroscope and light sensors post
+ * {@link AccelerometerEvent}, {@link GyroscopeEvent} and {@link LightEvent}
+ * respectively. Other sensors post {@link SensorWindowEvent}.
+ */
+public class SensorWire extends DemandDrivenWire implements SensorEventListener {
+
+	//-- public events
+
+	/** Aggregated values of sensor samples received within a time window. */
+	public static class SensorWindowEvent {
+
+		/** Sensor type, e.g. <code>Sensor.TYPE_ACCELEROMETER</code>. */
+		public final int sensorType;
+
+		/** Number of samples used for aggregation. */
+		public final int samples;
+
+		/** Timestamp of the last sample in nanoseconds. */
+		public final long timestamp;
+
+		/** Aggregated values for each sensor axis. Arrays must not be modified. */
+		public final float[] mean;
+		public final float[] min;
+		public final float[] max;
+		public final float[] rms;
+
+		public SensorWindowEvent(int sensorType, int samples, long timestamp,
+				float[] mean, float[] min, float[] max, float[] rms) {
+			this.sensorType = sensorType;
+			this.samples = samples;
+			this.timestamp = timestamp;
+			this.mean = mean;
+			this.min = min;
+			this.max = max;
+			this.rms = rms;
+		}
+	}
+
+	public static class AccelerometerEvent extends SensorWindowEvent {
+		public AccelerometerEvent(int sensorType, int samples, long timestamp,
+				float[] mean, float[] min, float[] max, float[] rms) {
+			super(sensorType, samples, timestamp, mean, min, max, rms);
+		}
+	}
+
+	public static class GyroscopeEvent extends SensorWindowEvent {
+		public GyroscopeEvent(int sensorType, int samples, long timestamp,
+				float[] mean, float[] min, float[] max, float[] rms) {
+			super(sensorType, samples, timestamp, mean, min, max, rms);
+		}
+	}
+
+	public static class LightEvent extends SensorWindowEvent {
+		public LightEvent(int sensorType, int samples, long timestamp,
+				float[] mean, float[] min, float[] max, float[] rms) {
+			super(sensorType, samples, timestamp, mean, min, max, rms);
+		}
+	}
+
+	//-- implementation
+
+	public static final int DEFAULT_WINDOW_MILLIS = 200;
+	public static final int DEFAULT_MAX_SAMPLES = 128;
+
+	private final int mSensorType;
+	private final int mSamplingPeriod;
+	private final int mWindowMillis;
+	private final SampleRing mRing;
+
+	// accessed in main thread only
+	private HandlerThread mSensorThread;
+	private Handler mSensorHandler;
+
+	private final Runnable mClearRingTask = new Runnable() {
+		@Override
+		public void run() {
+			mRing.clear();
+		}
+	};
+
+	/**
+	 * Creates sensor wire with default window length and sampling period.
+	 *
+	 * @param sensorType	sensor type, e.g. <code>Sensor.TYPE_ACCELEROMETER</code>
+	 */
+	public SensorWire(int sensorType) {
+		this(sensorType, SensorManager.SENSOR_DELAY_GAME, DEFAULT_WINDOW_MILLIS, DEFAULT_MAX_SAMPLES);
+	}
+
+	/**
+	 * Creates sensor wire with custom configuration.
+	 *
+	 * @param sensorType		sensor type, e.g. <code>Sensor.TYPE_ACCELEROMETER</code>
+	 * @param samplingPeriod	sampling period in microseconds or one of
+	 * 							<code>SensorManager.SENSOR_DELAY_*</code> constants
+	 * @param windowMillis		window length in ms, one event is posted per window
+	 * @param maxSamples		maximum number of samples aggregated per window
+	 */
+	public SensorWire(int sensorType, int samplingPeriod, int windowMillis, int maxSamples) {
+		super(getEventClass(sensorType));
+		if (windowMillis < 1) {
+			throw new IllegalArgumentException("Window must be positive, actual: " + windowMillis);
+		}
+		if (maxSamples < 1) {
+			throw new IllegalArgumentException("Max samples must be positive, actual: " + maxSamples);
+		}
+		mSensorType = sensorType;
+		mSamplingPeriod = samplingPeriod;
+		mWindowMillis = windowMillis;
+		mRing = new SampleRing(maxSamples, windowMillis * 1000000L, getAxes(sensorType));
+	}
+
+	private static Class<? extends SensorWindowEvent> getEventClass(int sensorType) {
+		switch (sensorType) {
+			case Sensor.TYPE_ACCELEROMETER: return AccelerometerEvent.class;
+			case Sensor.TYPE_GYROSCOPE: return GyroscopeEvent.class;
+			case Sensor.TYPE_LIGHT: return LightEvent.class;
+			default: return SensorWindowEvent.class;
+		}
+	}
+
+	/** Returns number of values reported by given sensor type. */
+	static int getAxes(int sensorType) {
+		switch (sensorType) {
+			case Sensor.TYPE_LIGHT:
+			case Sensor.TYPE_PRESSURE:
+			case Sensor.TYPE_PROXIMITY:
+			case Sensor.TYPE_RELATIVE_HUMIDITY:
+			case Sensor.TYPE_AMBIENT_TEMPERATURE:
+				return 1;
+			default: 
+				return SampleRing.MAX_AXES;
+		}
+	}
+
+	static SensorWindowEvent createEvent(int sensorType, int samples, long timestamp,
+			float[] mean, float[] min, float[] max, float[] rms) {
+		switch (sensorType) {
+			case Sensor.TYPE_ACCELEROMETER: 
+				return new AccelerometerEvent(sensorType, samples, timestamp, mean, min, max, rms);
+			case Sensor.TYPE_GYROSCOPE: 
+				return new GyroscopeEvent(sensorType, samples, timestamp, mean, min, max, rms);
+			case Sensor.TYPE_LIGHT: 
+				return new LightEvent(sensorType, samples, timestamp, mean, min, max, rms);
+			default: 
+				return new SensorWindowEvent(sensorType, samples, timestamp, mean, min, max, rms);
+		}
+	}
+
+	@Override
+	protected void onActivate() {
+		if (mSensorThread == null) {
+			mSensorThread = new HandlerThread("tinybus-sensor-" + mSensorType,
+					Process.THREAD_PRIORITY_BACKGROUND);
+			mSensorThread.start();
+			mSensorHandler = new Handler(mSensorThread.getLooper());
+		}
+
+		SensorManager sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+		Sensor sensor = sensorManager.getDefaultSensor(mSensorType);
+		if (sensor == null) {
+			return; // sensor is not available on this device
+		}
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+			// samples are aggregated per window, thus they can be delayed by same time
+			sensorManager.registerListener(this, sensor, mSamplingPeriod,
+					mWindowMillis * 1000, mSensorHandler);
+		} else {
+			sensorManager.registerListener(this, sensor, mSamplingPeriod, mSensorHandler);
+		}
+	}
+
+	@Override
+	protected void onDeactivate() {
+		SensorManager sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+		sensorManager.unregisterListener(this);
+
+		// ring is accessed in sensor thread only
+		if (mSensorHandler != null) {
+			mSensorHandler.post(mClearRingTask);
+		}
+	}
+
+	@Override
+	protected void onDestroy() {
+		if (mSensorThread != null) {
+			// no sensor callback must be running, when bus gets cleared
+			SensorManager sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+			sensorManager.unregisterListener(this);
+			quitAndJoin(mSensorThread);
+			mSensorThread = null;
+			mSensorHandler = null;
+		}
+		super.onDestroy();
+	}
+
+	private static void quitAndJoin(HandlerThread thread) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			thread.quitSafely();
+		} else {
+			thread.quit();
+		}
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void onSensorChanged(SensorEvent event) {
+		// this method is called in sensor thread
+		if (mRing.isWindowOver(event.timestamp)) {
+			SensorWindowEvent windowEvent = mRing.aggregate(mSensorType);
+			mRing.clear();
+			bus.post(windowEvent);
+		}
+		mRing.add(event.timestamp, event.values);
+	}
+
+	@Override
+	public void onAccuracyChanged(Sensor sensor, int accuracy) {
+	}
+
+	/** Ring buffer of sensor samples stored in primitive arrays. */
+	static class SampleRing {
+
+		/** Sensors deliver at most this number of values we aggregate. */
+		static final int MAX_AXES = 3;
+
+		private final int capacity;
+		private final long windowSize;
+		private final int axes;
+		private final float[] values;
+
+		private int next;
+		private int size;
+		private long windowStart;
+		private long lastTimestamp;
+
+		SampleRing(int capacity, long windowSize, int axes) {
+			this.capacity = capacity;
+			this.windowSize = windowSize;
+			this.axes = axes;
+			this.values = new float[capacity * axes];
+		}
+
+		boolean isWindowOver(long timestamp) {
+			return size > 0 && timestamp - windowStart >= windowSize;
+		}
+
+		/** Adds a sample, overwriting the oldest one if the ring is full. */
+		void add(long timestamp, float[] sample) {
+			if (size == 0) {
+				windowStart = timestamp;
+			}
+			final int offset = next * axes;
+			final int length = Math.min(sample.length, axes);
+			System.arraycopy(sample, 0, values, offset, length);
+			for (int axis = length; axis < axes; axis++) {
+				values[offset + axis] = 0; // missing value
+			}
+			next = (next + 1) % capacity;
+			if (size < capacity) {
+				size++;
+			}
+			lastTimestamp = timestamp;
+		}
+
+		/** 
+		 * Returns new event with aggregated values of all samples in the ring. 
+		 * The ring must not be empty.
+		 */
+		SensorWindowEvent aggregate(int sensorType) {
+			final float[] means = new float[axes];
+			final float[] mins = new float[axes];
+			final float[] maxs = new float[axes];
+			final float[] rmss = new float[axes];
+			float value;
+			float sum;
+			float sumOfSquares;
+			float min;
+			float max;
+			for (int axis = 0; axis < axes; axis++) {
+				sum = sumOfSquares = 0;
+				min = Float.MAX_VALUE;
+				max = -Float.MAX_VALUE;
+				for (int i = 0; i < size; i++) {
+					value = values[i * axes + axis];
+					sum += value;
+					sumOfSquares += value * value;
+					if (value < min) {
+						min = value;
+					}
+					if (value > max) {
+						max = value;
+					}
+				}
+				means[axis] = sum / size;
+				rmss[axis] = (float) Math.sqrt(sumOfSquares / size);
+				mins[axis] = min;
+				maxs[axis] = max;
+			}
+			return createEvent(sensorType, size, lastTimestamp, means, mins, maxs, rmss);
+		}
+
+		/** Removes all samples from the ring. */
+		void clear() {
+			next = 0;
+			size = 0;
+		}
+	}
+}
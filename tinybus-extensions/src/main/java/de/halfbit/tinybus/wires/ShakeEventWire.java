@@ -13,19 +13,26 @@ import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
-import de.halfbit.tinybus.TinyBus.Wireable;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
 
 /**
  * Detects phone shaking. If over 75% of the samples taken in the past 0.5s are
  * accelerating, the device is a) shaking, or b) free falling 1.84m (h =
  * 1/2*g*t^2*3/4).
  *
+ * <p>Sensor samples are received and analyzed in a dedicated background
+ * thread. Where supported, samples are batched by the sensor hardware.
+ * Only detected <code>ShakeEvent</code> is posted to the bus.
+ *
  * @author Bob Lee (bob@squareup.com)
  * @author Eric Burke (eric@squareup.com)
  * 
  * @author Sergej Shafarenka
  */
-public class ShakeEventWire extends Wireable implements SensorEventListener {
+public class ShakeEventWire extends DemandDrivenWire implements SensorEventListener {
 
 	public static class ShakeEvent { }
 
@@ -33,28 +40,111 @@ public class ShakeEventWire extends Wireable implements SensorEventListener {
 	 * When the magnitude of total acceleration exceeds this value, the phone is
 	 * accelerating.
 	 */
-	private static final int ACCELERATION_THRESHOLD = 12;
-	private final SampleQueue queue = new SampleQueue();
+	public static final float DEFAULT_ACCELERATION_THRESHOLD = 12;
+	
+	/** Time window in ms. Samples of this window are used to detect shaking. */
+	public static final int DEFAULT_WINDOW_MILLIS = 500;
+	
+	/** Maximum time in ms samples can be delayed by the hardware for batching. */
+	public static final int DEFAULT_MAX_REPORT_LATENCY_MILLIS = 200;
+	
+	private final float mAccelerationThresholdSquare;
+	private final int mMaxReportLatencyUs;
+	private final SampleQueue queue;
 	private final ShakeEvent mShakeEvent = new ShakeEvent();
+	
+	// accessed in main thread only
+	private HandlerThread mSensorThread;
+	private Handler mSensorHandler;
+	
+	private final Runnable mClearQueueTask = new Runnable() {
+		@Override
+		public void run() {
+			queue.clear();
+		}
+	};
+
+	public ShakeEventWire() { 
+		this(DEFAULT_ACCELERATION_THRESHOLD, DEFAULT_WINDOW_MILLIS, 
+				DEFAULT_MAX_REPORT_LATENCY_MILLIS);
+	}
 
-	public ShakeEventWire() { }
+	/**
+	 * Creates shake detector with custom configuration.
+	 * 
+	 * @param accelerationThreshold		acceleration magnitude in m/s^2 above which 
+	 * 									the device is considered to be accelerating
+	 * @param windowMillis				time window used for detecting shakes
+	 * @param maxReportLatencyMillis	maximum delay of samples batched by the sensor 
+	 * 									hardware, or 0 to disable batching
+	 */
+	public ShakeEventWire(float accelerationThreshold, int windowMillis, int maxReportLatencyMillis) { 
+		super(ShakeEvent.class);
+		mAccelerationThresholdSquare = accelerationThreshold * accelerationThreshold;
+		mMaxReportLatencyUs = maxReportLatencyMillis * 1000;
+		queue = new SampleQueue(windowMillis * 1000000L);
+	}
 
 	@Override
-	protected void onStart() {
+	protected void onActivate() {
+		if (mSensorThread == null) {
+			mSensorThread = new HandlerThread("tinybus-shake-sensor", 
+					Process.THREAD_PRIORITY_BACKGROUND);
+			mSensorThread.start();
+			mSensorHandler = new Handler(mSensorThread.getLooper());
+		}
+		
 		SensorManager sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
 		Sensor sensor = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
-		sensorManager.registerListener(this, sensor, SensorManager.SENSOR_DELAY_NORMAL);
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+			sensorManager.registerListener(this, sensor, SensorManager.SENSOR_DELAY_NORMAL, 
+					mMaxReportLatencyUs, mSensorHandler);
+		} else {
+			sensorManager.registerListener(this, sensor, SensorManager.SENSOR_DELAY_NORMAL, 
+					mSensorHandler);
+		}
 	}
 
 	@Override
-	protected void onStop() {
+	protected void onDeactivate() {
 		SensorManager sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
 		sensorManager.unregisterListener(this);
-		queue.clear();
+		
+		// queue is accessed in sensor thread only
+		if (mSensorHandler != null) {
+			mSensorHandler.post(mClearQueueTask);
+		}
+	}
+	
+	@Override
+	protected void onDestroy() {
+		if (mSensorThread != null) {
+			// no sensor callback must be running, when bus gets cleared
+			SensorManager sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+			sensorManager.unregisterListener(this);
+			quitAndJoin(mSensorThread);
+			mSensorThread = null;
+			mSensorHandler = null;
+		}
+		super.onDestroy();
+	}
+	
+	private static void quitAndJoin(HandlerThread thread) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			thread.quitSafely();
+		} else {
+			thread.quit();
+		}
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
 	}
 
 	@Override
 	public void onSensorChanged(SensorEvent event) {
+		// this method is called in sensor thread
 		boolean accelerating = isAccelerating(event);
 		queue.add(event.timestamp, accelerating);
 		if (queue.isShaking()) {
@@ -69,16 +159,16 @@ public class ShakeEventWire extends Wireable implements SensorEventListener {
 		float ay = event.values[1];
 		float az = event.values[2];
 
-		final double magnitude = Math.sqrt(ax * ax + ay * ay + az * az);
-		return magnitude > ACCELERATION_THRESHOLD;
+		final float magnitudeSquare = ax * ax + ay * ay + az * az;
+		return magnitudeSquare > mAccelerationThresholdSquare;
 	}
 
 	/** Queue of samples. Keeps a running average. */
 	static class SampleQueue {
 
 		/** Window size in ns. Used to compute the average. */
-		private static final long MAX_WINDOW_SIZE = 500000000; // 0.5s
-		private static final long MIN_WINDOW_SIZE = MAX_WINDOW_SIZE >> 1; // 0.25s
+		private final long maxWindowSize;
+		private final long minWindowSize;
 
 		/**
 		 * Ensure the queue size never falls below this size, even if the device
@@ -94,17 +184,22 @@ public class ShakeEventWire extends Wireable implements SensorEventListener {
 		private int sampleCount;
 		private int acceleratingCount;
 
+		SampleQueue(long windowSize) {
+			maxWindowSize = windowSize;
+			minWindowSize = windowSize >> 1;
+		}
+
 		/**
 		 * Adds a sample.
 		 *
 		 * @param timestamp
 		 *            in nanoseconds of sample
 		 * @param accelerating
-		 *            true if > {@link #ACCELERATION_THRESHOLD}.
+		 *            true if > acceleration threshold.
 		 */
 		void add(long timestamp, boolean accelerating) {
 			// Purge samples that proceed window.
-			purge(timestamp - MAX_WINDOW_SIZE);
+			purge(timestamp - maxWindowSize);
 
 			// Add the sample to the queue.
 			Sample added = pool.acquire();
@@ -164,7 +259,7 @@ public class ShakeEventWire extends Wireable implements SensorEventListener {
 		boolean isShaking() {
 			return newest != null
 					&& oldest != null
-					&& newest.timestamp - oldest.timestamp >= MIN_WINDOW_SIZE
+					&& newest.timestamp - oldest.timestamp >= minWindowSize
 					&& acceleratingCount >= (sampleCount >> 1)
 							+ (sampleCount >> 2);
 		}
@@ -175,7 +270,7 @@ public class ShakeEventWire extends Wireable implements SensorEventListener {
 		/** Time sample was taken. */
 		long timestamp;
 
-		/** If acceleration > {@link #ACCELERATION_THRESHOLD}. */
+		/** If acceleration > acceleration threshold. */
 		boolean accelerating;
 
 		/** Next sample in the queue or pool. */
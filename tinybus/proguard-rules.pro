@@ -1,4 +1,4 @@
 -keepclassmembers, allowobfuscation class ** {
-    @de.halfbit.tinybus.Subscribe public *;
-    @de.halfbit.tinybus.Produce public *;
+    @de.halfbit.tinybus.Subscribe *;
+    @de.halfbit.tinybus.Produce *;
 }
\ No newline at end of file
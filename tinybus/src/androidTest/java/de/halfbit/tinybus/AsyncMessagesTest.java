@@ -0,0 +1,97 @@
+package de.halfbit.tinybus;
+
+import java.util.ArrayList;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.test.InstrumentationTestCase;
+
+/**
+ * Checks messages, which the bus sends to main thread. This test lives in 
+ * bus package, because it calls package private 
+ * {@link TinyBus#postToMainThread(Handler, Runnable, long)}.
+ */
+public class AsyncMessagesTest extends InstrumentationTestCase {
+
+	/** Records sent messages instead of enqueuing them. */
+	static class RecordingHandler extends Handler {
+		final ArrayList<Boolean> asynchronous = new ArrayList<Boolean>();
+		final ArrayList<Runnable> callbacks = new ArrayList<Runnable>();
+		
+		RecordingHandler() {
+			super(Looper.getMainLooper());
+		}
+		
+		@Override
+		public boolean sendMessageAtTime(Message msg, long uptimeMillis) {
+			asynchronous.add(msg.isAsynchronous());
+			callbacks.add(msg.getCallback());
+			return true;
+		}
+	}
+	
+	private static final Runnable TASK = new Runnable() {
+		@Override
+		public void run() {
+		}
+	};
+	
+	private TinyBus bus;
+	private RecordingHandler handler;
+	
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		bus = new TinyBus();
+		handler = new RecordingHandler();
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		handler = null;
+		super.tearDown();
+	}
+	
+	private static boolean asyncSupported() {
+		return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP_MR1;
+	}
+	
+	public void testSynchronousByDefault() {
+		bus.postToMainThread(handler, TASK, 0);
+		
+		assertEquals(1, handler.asynchronous.size());
+		assertFalse(handler.asynchronous.get(0));
+		assertSame(TASK, handler.callbacks.get(0));
+	}
+	
+	public void testAsynchronous() {
+		bus.setAsynchronousMessages(true);
+		bus.postToMainThread(handler, TASK, 0);
+		
+		assertEquals(1, handler.asynchronous.size());
+		assertEquals(asyncSupported(), handler.asynchronous.get(0).booleanValue());
+		assertSame(TASK, handler.callbacks.get(0));
+	}
+	
+	public void testAsynchronousDelayed() {
+		bus.setAsynchronousMessages(true);
+		bus.postToMainThread(handler, TASK, 1000);
+		
+		assertEquals(1, handler.asynchronous.size());
+		assertEquals(asyncSupported(), handler.asynchronous.get(0).booleanValue());
+		assertSame(TASK, handler.callbacks.get(0));
+	}
+	
+	public void testSwitchedOff() {
+		bus.setAsynchronousMessages(true);
+		bus.setAsynchronousMessages(false);
+		bus.postToMainThread(handler, TASK, 0);
+		
+		assertEquals(1, handler.asynchronous.size());
+		assertFalse(handler.asynchronous.get(0));
+	}
+	
+}
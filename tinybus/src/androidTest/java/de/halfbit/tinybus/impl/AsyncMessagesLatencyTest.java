@@ -0,0 +1,135 @@
+package de.halfbit.tinybus.impl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.View;
+import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.mocks.Event1;
+
+/**
+ * Measures latency of events posted from a background thread, while a
+ * layout traversal is pending. The view hierarchy blocks synchronous
+ * messages with a sync barrier from <code>requestLayout()</code> until
+ * the traversal is done. Average latencies are reported as instrumentation
+ * status (see <code>am instrument -r</code>).
+ */
+public class AsyncMessagesLatencyTest
+		extends ActivityInstrumentationTestCase2<AsyncMessagesLatencyTest.TestActivity> {
+
+	private static final int REPORT_CODE_BENCHMARK = 2;
+	private static final long LAYOUT_MILLIS = 16;
+	private static final int EVENTS_NUMBER = 20;
+
+	/** Activity hosting a view, which takes a frame to lay out. */
+	public static class TestActivity extends Activity {
+
+		View view;
+
+		@Override
+		protected void onCreate(Bundle savedInstanceState) {
+			super.onCreate(savedInstanceState);
+			view = new SlowLayoutView(this);
+			setContentView(view);
+		}
+	}
+
+	static class SlowLayoutView extends View {
+
+		SlowLayoutView(Context context) {
+			super(context);
+		}
+
+		@Override
+		protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+			super.onLayout(changed, left, top, right, bottom);
+			SystemClock.sleep(LAYOUT_MILLIS);
+		}
+	}
+
+	private TinyBus bus;
+	private volatile long received;
+	private volatile CountDownLatch latch;
+
+	public AsyncMessagesLatencyTest() {
+		super(TestActivity.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		getActivity();
+		getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				bus = new TinyBus();
+				bus.register(new Object() {
+					@Subscribe
+					public void onEvent(Event1 event) {
+						received = SystemClock.uptimeMillis();
+						latch.countDown();
+					}
+				});
+			}
+		});
+		getInstrumentation().waitForIdleSync();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		super.tearDown();
+	}
+
+	public void testAsyncMessagesLatency() throws Exception {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP_MR1) {
+			return; // asynchronous messages are not supported
+		}
+
+		bus.setAsynchronousMessages(false);
+		long syncLatency = measureAverageLatency();
+
+		bus.setAsynchronousMessages(true);
+		long asyncLatency = measureAverageLatency();
+
+		Bundle results = new Bundle();
+		results.putLong("sync_latency_ms", syncLatency);
+		results.putLong("async_latency_ms", asyncLatency);
+		getInstrumentation().sendStatus(REPORT_CODE_BENCHMARK, results);
+
+		assertTrue(asyncLatency < syncLatency);
+	}
+
+	private long measureAverageLatency() throws Exception {
+		final View view = getActivity().view;
+		final Runnable requestLayout = new Runnable() {
+			@Override
+			public void run() {
+				// schedules traversal and blocks synchronous messages until it is done
+				view.requestLayout();
+			}
+		};
+
+		long total = 0;
+		for (int i = 0; i < EVENTS_NUMBER; i++) {
+			latch = new CountDownLatch(1);
+			getInstrumentation().runOnMainSync(requestLayout);
+
+			long posted = SystemClock.uptimeMillis();
+			bus.post(new Event1(String.valueOf(i)));
+
+			assertTrue(latch.await(3, TimeUnit.SECONDS));
+			total += received - posted;
+			getInstrumentation().waitForIdleSync();
+		}
+		return total / EVENTS_NUMBER;
+	}
+
+}
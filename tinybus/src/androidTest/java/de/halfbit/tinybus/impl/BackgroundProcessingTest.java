@@ -296,6 +296,8 @@ public class BackgroundProcessingTest extends InstrumentationTestCase {
 	@UiThreadTest
 	public void testTwoSubscribersSameInstance() throws Throwable {
 		
+		final CountDownLatch mainLatch = new CountDownLatch(1);
+		final CountDownLatch backgroundLatch = new CountDownLatch(1);
 		final Callbacks subscriber = new Callbacks() {
 			
 			@Subscribe(mode=Mode.Background)
@@ -303,6 +305,7 @@ public class BackgroundProcessingTest extends InstrumentationTestCase {
 				synchronized (this) {
 					onCallback(event);
 				}
+				backgroundLatch.countDown();
 			}
 			
 			@Subscribe
@@ -310,17 +313,21 @@ public class BackgroundProcessingTest extends InstrumentationTestCase {
 				synchronized (this) {
 					onCallback(event);
 				}
+				mainLatch.countDown();
 			}
 		};
 		
 		bus = new TinyBus(getInstrumentation().getContext());
-		try {
-			bus.register(subscriber);
-			fail();
-		} catch (IllegalArgumentException e) {
-			// OK
-		}
+		bus.register(subscriber);
+		
+		Event1 event = new Event1("event a");
+		bus.post(event);
 		
+		assertTrue(mainLatch.await(3, TimeUnit.SECONDS));
+		assertTrue(backgroundLatch.await(3, TimeUnit.SECONDS));
+		
+		// both callbacks receive the same instance, in whatever order
+		subscriber.assertSameEvents(event, event);
 	}
 	
 	//-- post from background
@@ -354,4 +361,46 @@ public class BackgroundProcessingTest extends InstrumentationTestCase {
 		assertEquals("event 1", stringResult);
 	}
 	
+	public void testPostBackgroundReceiveBackgroundWhileMainThreadBlocked() throws Throwable {
+		
+		final CountDownLatch received = new CountDownLatch(1);
+		final CountDownLatch unblock = new CountDownLatch(1);
+		
+		runTestOnUiThread(new Runnable() {
+			public void run() {
+				bus = new TinyBus(getInstrumentation().getContext());
+				bus.register(new Object () {
+					@Subscribe(mode=Mode.Background)
+					public void onEvent(String event) {
+						stringResult = event;
+						received.countDown();
+						unblock.countDown();
+					}
+				});
+			}
+		});
+		getInstrumentation().waitForIdleSync();
+		
+		// block main thread, event must not go through it
+		getInstrumentation().runOnMainSync(new Runnable() {
+			public void run() {
+				new Thread(new Runnable() {
+					public void run() {
+						bus.post("event 1");
+					}
+				}).start();
+				try {
+					unblock.await(3, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					// ignore
+				}
+			}
+		});
+		
+		// main thread was unblocked by subscriber, not by timeout
+		assertEquals(0, unblock.getCount());
+		assertTrue(received.await(3, TimeUnit.SECONDS));
+		assertEquals("event 1", stringResult);
+	}
+	
 }
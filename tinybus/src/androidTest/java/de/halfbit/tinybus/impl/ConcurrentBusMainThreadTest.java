@@ -0,0 +1,200 @@
+package de.halfbit.tinybus.impl;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import android.os.Looper;
+import android.test.InstrumentationTestCase;
+import android.test.UiThreadTest;
+import de.halfbit.tinybus.ConcurrentBus;
+import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.Subscribe.Mode;
+import de.halfbit.tinybus.mocks.Callbacks;
+import de.halfbit.tinybus.mocks.Event1;
+
+/**
+ * Checks delivery of concurrent bus to <code>Mode.Main</code> and
+ * <code>Mode.Background</code> subscribers, which requires a looper.
+ */
+public class ConcurrentBusMainThreadTest extends InstrumentationTestCase {
+
+	private static final int EVENTS_NUMBER = 100;
+
+	private ConcurrentBus bus;
+
+	public static class SequenceEvent {
+		public final int sequence;
+
+		public SequenceEvent(int sequence) {
+			this.sequence = sequence;
+		}
+	}
+
+	public static class MainSubscriber extends Callbacks {
+		final ArrayList<Thread> threads = new ArrayList<Thread>();
+
+		@Subscribe
+		public void onEvent(Event1 event) {
+			threads.add(Thread.currentThread());
+			onCallback(event);
+		}
+	}
+
+	public static class SequenceSubscriber {
+		final ArrayList<Integer> sequences = new ArrayList<Integer>();
+		final CountDownLatch received = new CountDownLatch(EVENTS_NUMBER);
+
+		@Subscribe
+		public void onEvent(SequenceEvent event) {
+			sequences.add(event.sequence);
+			received.countDown();
+		}
+	}
+
+	public static class BackgroundSubscriber extends Callbacks {
+		final CountDownLatch received = new CountDownLatch(1);
+		volatile Thread thread;
+
+		@Subscribe(mode = Mode.Background)
+		public void onEvent(Event1 event) {
+			thread = Thread.currentThread();
+			onCallback(event);
+			received.countDown();
+		}
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		bus = new ConcurrentBus(getInstrumentation().getContext());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		super.tearDown();
+	}
+
+	private void postInThread(final Object event) throws InterruptedException {
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				bus.post(event);
+			}
+		};
+		thread.start();
+		thread.join();
+	}
+
+	//-- main thread subscribers
+
+	@UiThreadTest
+	public void testPostInMainThreadCalledDirectly() {
+		MainSubscriber subscriber = new MainSubscriber();
+		bus.register(subscriber);
+
+		Event1 event = new Event1("event");
+		bus.post(event);
+
+		subscriber.assertSameEvents(event);
+		assertSame(Thread.currentThread(), subscriber.threads.get(0));
+	}
+
+	public void testPostInBackgroundCalledInMainThread() throws Throwable {
+		MainSubscriber subscriber = new MainSubscriber();
+		bus.register(subscriber);
+
+		Event1 event = new Event1("event");
+		postInThread(event);
+		getInstrumentation().waitForIdleSync();
+
+		subscriber.assertSameEvents(event);
+		assertSame(Looper.getMainLooper().getThread(), subscriber.threads.get(0));
+	}
+
+	public void testPostInBackgroundKeepsOrder() throws Throwable {
+		SequenceSubscriber subscriber = new SequenceSubscriber();
+		bus.register(subscriber);
+
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				for (int i = 0; i < EVENTS_NUMBER; i++) {
+					bus.post(new SequenceEvent(i));
+				}
+			}
+		};
+		thread.start();
+		thread.join();
+
+		assertTrue(subscriber.received.await(3, TimeUnit.SECONDS));
+		getInstrumentation().waitForIdleSync();
+
+		assertEquals(EVENTS_NUMBER, subscriber.sequences.size());
+		for (int i = 0; i < EVENTS_NUMBER; i++) {
+			assertEquals(i, subscriber.sequences.get(i).intValue());
+		}
+	}
+
+	public void testUnregisteredInMainThreadNotCalled() throws Throwable {
+		final MainSubscriber subscriber = new MainSubscriber();
+		bus.register(subscriber);
+
+		getInstrumentation().runOnMainSync(new Runnable() {
+			public void run() {
+				try {
+					// main thread is busy, thus delivery is queued in its handler
+					postInThread(new Event1("event"));
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				// queued delivery reads actual subscribers
+				bus.unregister(subscriber);
+			}
+		});
+		getInstrumentation().waitForIdleSync();
+
+		subscriber.assertNoEvents();
+	}
+
+	//-- background subscribers
+
+	public void testBackgroundSubscriber() throws Throwable {
+		BackgroundSubscriber subscriber = new BackgroundSubscriber();
+		bus.register(subscriber);
+
+		Event1 event = new Event1("event");
+		bus.post(event);
+
+		assertTrue(subscriber.received.await(3, TimeUnit.SECONDS));
+		subscriber.assertSameEvents(event);
+		assertNotSame(Thread.currentThread(), subscriber.thread);
+		assertNotSame(Looper.getMainLooper().getThread(), subscriber.thread);
+	}
+
+	@UiThreadTest
+	public void testBackgroundSubscriberPostInMainThread() throws Throwable {
+		BackgroundSubscriber subscriber = new BackgroundSubscriber();
+		bus.register(subscriber);
+
+		Event1 event = new Event1("event");
+		bus.post(event);
+
+		assertTrue(subscriber.received.await(3, TimeUnit.SECONDS));
+		subscriber.assertSameEvents(event);
+		assertNotSame(Thread.currentThread(), subscriber.thread);
+	}
+
+	public void testBackgroundSubscriberRequiresContext() {
+		bus = new ConcurrentBus();
+		bus.register(new BackgroundSubscriber());
+		try {
+			bus.post(new Event1("event"));
+			fail("exception expected");
+		} catch (IllegalStateException e) {
+			// OK
+		}
+	}
+
+}
@@ -0,0 +1,397 @@
+package de.halfbit.tinybus.impl;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+import de.halfbit.tinybus.Bus.DemandCallbacks;
+import de.halfbit.tinybus.ConcurrentBus;
+import de.halfbit.tinybus.Produce;
+import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.Subscribe.Mode;
+import de.halfbit.tinybus.mocks.Callbacks;
+import de.halfbit.tinybus.mocks.Event1;
+
+/**
+ * Checks guarantees of concurrent bus by running many threads registering,
+ * unregistering and posting at the same time. Every thread verifies the
+ * guarantees, which must hold for its own actions.
+ */
+public class ConcurrentBusTest extends TestCase {
+
+	private static final int THREADS_NUMBER = 8;
+	private static final int ITERATIONS_NUMBER = 2000;
+
+	private ConcurrentBus bus;
+
+	public static class SequenceEvent {
+		public final int thread;
+		public final int sequence;
+
+		public SequenceEvent(int thread, int sequence) {
+			this.thread = thread;
+			this.sequence = sequence;
+		}
+	}
+
+	public static class PostingSubscriber extends Callbacks {
+		@Subscribe(mode = Mode.Posting)
+		public void onEvent(Event1 event) {
+			onCallback(event);
+		}
+	}
+
+	/** Records events of current thread only, thus it needs no locking. */
+	public static class ThreadSubscriber {
+		final Thread owner = Thread.currentThread();
+		int received;
+
+		@Subscribe(mode = Mode.Posting)
+		public void onEvent(SequenceEvent event) {
+			if (Thread.currentThread() == owner) {
+				received++;
+			}
+		}
+	}
+
+	public static class SequenceSubscriber {
+		final int[] lastSequences = new int[THREADS_NUMBER];
+		final AtomicInteger violations = new AtomicInteger();
+
+		public SequenceSubscriber() {
+			for (int i = 0; i < THREADS_NUMBER; i++) {
+				lastSequences[i] = -1;
+			}
+		}
+
+		@Subscribe(mode = Mode.Posting)
+		public synchronized void onEvent(SequenceEvent event) {
+			if (event.sequence <= lastSequences[event.thread]) {
+				violations.incrementAndGet();
+			}
+			lastSequences[event.thread] = event.sequence;
+		}
+	}
+
+	public static class DemandProducer implements DemandCallbacks {
+		final ArrayList<String> calls = new ArrayList<String>();
+
+		@Override
+		public void onFirstSubscriber(Class<?> eventClass) {
+			calls.add("first:" + eventClass.getSimpleName());
+		}
+
+		@Override
+		public void onLastSubscriberGone(Class<?> eventClass) {
+			calls.add("last:" + eventClass.getSimpleName());
+		}
+	}
+
+	public static class Producer {
+		@Produce
+		public Event1 getEvent() {
+			return null;
+		}
+	}
+
+	public static class FrameSubscriber {
+		@Subscribe(mode = Mode.Frame)
+		public void onEvent(Event1 event) {
+		}
+	}
+
+	public static class IdleSubscriber {
+		@Subscribe(mode = Mode.Idle)
+		public void onEvent(Event1 event) {
+		}
+	}
+
+	public static class ProducerSubscriber extends PostingSubscriber {
+		@Produce
+		public Event1 getEvent() {
+			return null;
+		}
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		bus = new ConcurrentBus();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		super.tearDown();
+	}
+
+	private void runInThreads(final ThreadTask task) throws Throwable {
+		final CyclicBarrier start = new CyclicBarrier(THREADS_NUMBER);
+		final CountDownLatch done = new CountDownLatch(THREADS_NUMBER);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		for (int i = 0; i < THREADS_NUMBER; i++) {
+			final int thread = i;
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						task.run(thread);
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					} finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+
+		done.await();
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+	}
+
+	private interface ThreadTask {
+		void run(int thread) throws Exception;
+	}
+
+	public void testRegisterInOneThreadPostInAnother() throws Throwable {
+		final PostingSubscriber subscriber = new PostingSubscriber();
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				bus.register(subscriber);
+			}
+		};
+		thread.start();
+		thread.join();
+
+		assertTrue(bus.hasRegistered(subscriber));
+		assertTrue(bus.hasSubscribers(Event1.class));
+
+		Event1 event = new Event1("event");
+		bus.post(event);
+		subscriber.assertSameEvents(event);
+	}
+
+	public void testOwnRegistrationsVisibleToOwnPosts() throws Throwable {
+		runInThreads(new ThreadTask() {
+			@Override
+			public void run(int thread) {
+				ThreadSubscriber subscriber = new ThreadSubscriber();
+				for (int i = 0; i < ITERATIONS_NUMBER; i++) {
+
+					// posted after registration must be received
+					bus.register(subscriber);
+					bus.post(new SequenceEvent(thread, i));
+					assertEquals(1, subscriber.received);
+
+					// posted after unregistration must not be received
+					bus.unregister(subscriber);
+					bus.post(new SequenceEvent(thread, i));
+					assertEquals(1, subscriber.received);
+
+					subscriber.received = 0;
+				}
+			}
+		});
+
+		assertFalse(bus.hasSubscribers(SequenceEvent.class));
+	}
+
+	public void testPerThreadOrder() throws Throwable {
+		final SequenceSubscriber subscriber = new SequenceSubscriber();
+		bus.register(subscriber);
+
+		runInThreads(new ThreadTask() {
+			@Override
+			public void run(int thread) {
+				ThreadSubscriber other = new ThreadSubscriber();
+				for (int i = 0; i < ITERATIONS_NUMBER; i++) {
+					// change subscribers while posting
+					if (i % 2 == 0) {
+						bus.register(other);
+					} else {
+						bus.unregister(other);
+					}
+					bus.post(new SequenceEvent(thread, i));
+				}
+			}
+		});
+
+		assertEquals(0, subscriber.violations.get());
+		for (int i = 0; i < THREADS_NUMBER; i++) {
+			assertEquals(ITERATIONS_NUMBER - 1, subscriber.lastSequences[i]);
+		}
+	}
+
+	public void testStickyEventPostedInAnotherThread() throws Throwable {
+		final Event1 event = new Event1("sticky");
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				bus.postSticky(event);
+			}
+		};
+		thread.start();
+		thread.join();
+
+		PostingSubscriber subscriber = new PostingSubscriber();
+		bus.register(subscriber);
+		subscriber.assertSameEvents(event);
+	}
+
+	public void testDemandCallbacks() {
+		DemandProducer producer = new DemandProducer();
+		bus.register(producer);
+
+		PostingSubscriber subscriber1 = new PostingSubscriber();
+		PostingSubscriber subscriber2 = new PostingSubscriber();
+		bus.registerAll(subscriber1, subscriber2);
+		bus.unregister(subscriber1);
+		bus.unregister(subscriber2);
+
+		assertEquals(2, producer.calls.size());
+		assertEquals("first:Event1", producer.calls.get(0));
+		assertEquals("last:Event1", producer.calls.get(1));
+	}
+
+	public void testUnsupportedProducer() {
+		try {
+			bus.register(new Producer());
+			fail("exception expected");
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+	}
+
+	public void testUnsupportedProducerInSubscriber() {
+		try {
+			bus.register(new ProducerSubscriber());
+			fail("exception expected");
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+		assertFalse(bus.hasSubscribers(Event1.class));
+	}
+
+	public void testUnsupportedFrameMode() {
+		try {
+			bus.register(new FrameSubscriber());
+			fail("exception expected");
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+		assertFalse(bus.hasSubscribers(Event1.class));
+	}
+
+	public void testUnsupportedIdleMode() {
+		try {
+			bus.register(new IdleSubscriber());
+			fail("exception expected");
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+		assertFalse(bus.hasSubscribers(Event1.class));
+	}
+
+	public void testUnsupportedRejectedOnEveryRegistration() {
+		for (int i = 0; i < 2; i++) {
+			try {
+				bus.register(new IdleSubscriber());
+				fail("exception expected");
+			} catch (IllegalArgumentException e) {
+				// OK
+			}
+		}
+	}
+
+	public void testUnregisterNotRegistered() {
+		try {
+			bus.unregister(new PostingSubscriber());
+			fail("exception expected");
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+	}
+
+	public void testDemandCallbacksCalledUnlocked() throws Throwable {
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final PostingSubscriber otherSubscriber = new PostingSubscriber();
+		bus.register(new DemandCallbacks() {
+			@Override
+			public void onFirstSubscriber(Class<?> eventClass) {
+				// blocks on another thread registering at the same bus
+				Thread thread = new Thread() {
+					@Override
+					public void run() {
+						try {
+							bus.register(otherSubscriber);
+						} catch (Throwable e) {
+							failure.set(e);
+						}
+					}
+				};
+				thread.start();
+				try {
+					thread.join(3000);
+				} catch (InterruptedException e) {
+					failure.set(e);
+				}
+				if (thread.isAlive()) {
+					failure.set(new AssertionError("deadlock"));
+				}
+			}
+
+			@Override
+			public void onLastSubscriberGone(Class<?> eventClass) {
+			}
+		});
+
+		bus.register(new PostingSubscriber());
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+		assertTrue(bus.hasRegistered(otherSubscriber));
+	}
+
+	public void testRegisterAllRollsBackOnFailure() {
+		DemandProducer producer = new DemandProducer();
+		bus.register(producer);
+
+		PostingSubscriber subscriber = new PostingSubscriber();
+		try {
+			bus.registerAll(subscriber, new IdleSubscriber());
+			fail("exception expected");
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+		assertFalse(bus.hasRegistered(subscriber));
+		assertFalse(bus.hasSubscribers(Event1.class));
+		assertEquals(0, producer.calls.size());
+
+		bus.post(new Event1("event"));
+		subscriber.assertNoEvents();
+	}
+
+	public void testRegisterAllSameObjectTwice() {
+		PostingSubscriber subscriber = new PostingSubscriber();
+		try {
+			bus.registerAll(subscriber, subscriber);
+			fail("exception expected");
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+		assertFalse(bus.hasRegistered(subscriber));
+
+		// nothing is left registered, thus it can be registered again
+		bus.register(subscriber);
+		assertTrue(bus.hasRegistered(subscriber));
+	}
+
+}
@@ -0,0 +1,116 @@
+package de.halfbit.tinybus.impl;
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+import de.halfbit.tinybus.Bus.DemandCallbacks;
+import de.halfbit.tinybus.Produce;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.mocks.Event1;
+import de.halfbit.tinybus.mocks.Event2;
+import de.halfbit.tinybus.mocks.Subscriber1;
+import de.halfbit.tinybus.mocks.Subscriber2;
+
+public class DemandCallbacksTest extends TestCase {
+
+	private TinyBus bus;
+	private DemandProducer producer;
+
+	public static class DemandProducer implements DemandCallbacks {
+		final ArrayList<String> calls = new ArrayList<String>();
+		Event1 lastEvent;
+
+		@Override
+		public void onFirstSubscriber(Class<?> eventClass) {
+			calls.add("first:" + eventClass.getSimpleName());
+			if (eventClass == Event1.class) {
+				lastEvent = new Event1("produced");
+			}
+		}
+
+		@Override
+		public void onLastSubscriberGone(Class<?> eventClass) {
+			calls.add("last:" + eventClass.getSimpleName());
+			if (eventClass == Event1.class) {
+				lastEvent = null;
+			}
+		}
+
+		@Produce
+		public Event1 getLastEvent() {
+			return lastEvent;
+		}
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		bus = new TinyBus();
+		producer = new DemandProducer();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		producer = null;
+		super.tearDown();
+	}
+
+	public void testHasSubscribers() {
+		assertFalse(bus.hasSubscribers(Event1.class));
+
+		Subscriber1 subscriber = new Subscriber1();
+		bus.register(subscriber);
+		assertTrue(bus.hasSubscribers(Event1.class));
+		assertFalse(bus.hasSubscribers(Event2.class));
+
+		bus.unregister(subscriber);
+		assertFalse(bus.hasSubscribers(Event1.class));
+	}
+
+	public void testFirstAndLastSubscriber() {
+		bus.register(producer);
+
+		Subscriber1 subscriber1 = new Subscriber1();
+		Subscriber1 subscriber2 = new Subscriber1();
+		bus.register(subscriber1);
+		bus.register(subscriber2);
+		bus.unregister(subscriber1);
+		bus.unregister(subscriber2);
+
+		assertEquals(2, producer.calls.size());
+		assertEquals("first:Event1", producer.calls.get(0));
+		assertEquals("last:Event1", producer.calls.get(1));
+	}
+
+	public void testEventProducedAfterFirstSubscriber() {
+		bus.register(producer);
+
+		Subscriber1 subscriber = new Subscriber1();
+		bus.register(subscriber);
+		subscriber.assertSameEvents(producer.lastEvent);
+	}
+
+	public void testSubscriberOfManyEventTypes() {
+		bus.register(producer);
+
+		Subscriber2 subscriber = new Subscriber2();
+		bus.register(subscriber);
+		assertEquals(3, producer.calls.size());
+
+		bus.unregister(subscriber);
+		assertEquals(6, producer.calls.size());
+		assertTrue(producer.calls.contains("last:Event1"));
+		assertTrue(producer.calls.contains("last:Event2"));
+		assertTrue(producer.calls.contains("last:Event3"));
+	}
+
+	public void testNoCallbacksAfterUnregister() {
+		bus.register(producer);
+		bus.unregister(producer);
+
+		bus.register(new Subscriber1());
+		assertEquals(0, producer.calls.size());
+	}
+
+}
@@ -0,0 +1,81 @@
+package de.halfbit.tinybus.impl;
+
+import junit.framework.TestCase;
+import de.halfbit.tinybus.Bus.EventFactory;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.mocks.Event1;
+import de.halfbit.tinybus.mocks.Subscriber1;
+
+public class EventFactoryTest extends TestCase {
+
+	private TinyBus bus;
+	private CountingFactory factory;
+
+	static class CountingFactory implements EventFactory<Event1> {
+		int calls;
+		Event1 event = new Event1("created");
+
+		@Override
+		public Event1 createEvent() {
+			calls++;
+			return event;
+		}
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		bus = new TinyBus();
+		factory = new CountingFactory();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		factory = null;
+		super.tearDown();
+	}
+
+	public void testFactoryNotCalledWithoutSubscribers() {
+		bus.post(Event1.class, factory);
+		assertEquals(0, factory.calls);
+	}
+
+	public void testFactoryCalledWithSubscriber() {
+		Subscriber1 subscriber = new Subscriber1();
+		bus.register(subscriber);
+
+		bus.post(Event1.class, factory);
+		assertEquals(1, factory.calls);
+		subscriber.assertSameEvents(factory.event);
+	}
+
+	public void testFactoryNotCalledAfterUnregister() {
+		Subscriber1 subscriber = new Subscriber1();
+		bus.register(subscriber);
+		bus.unregister(subscriber);
+
+		bus.post(Event1.class, factory);
+		assertEquals(0, factory.calls);
+	}
+
+	public void testNullEventNotPosted() {
+		Subscriber1 subscriber = new Subscriber1();
+		bus.register(subscriber);
+
+		factory.event = null;
+		bus.post(Event1.class, factory);
+		assertEquals(1, factory.calls);
+		subscriber.assertNoEvents();
+	}
+
+	public void testNullFactory() {
+		try {
+			bus.post(Event1.class, null);
+			fail("exception expected");
+		} catch (NullPointerException e) {
+			// OK
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+package de.halfbit.tinybus.impl;
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.Subscribe.Mode;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.mocks.Callbacks;
+
+public class EventInheritanceTest extends TestCase {
+
+	public static interface Tagged {}
+	
+	public static class BaseEvent {}
+	
+	public static class ChildEvent extends BaseEvent implements Tagged {}
+	
+	public static class BaseSubscriber extends Callbacks {
+		@Subscribe
+		public void onEvent(BaseEvent event) {
+			onCallback(event);
+		}
+	}
+	
+	public static class ChildSubscriber extends Callbacks {
+		@Subscribe
+		public void onEvent(ChildEvent event) {
+			onCallback(event);
+		}
+	}
+	
+	public static class TaggedSubscriber extends Callbacks {
+		@Subscribe
+		public void onEvent(Tagged event) {
+			onCallback(event);
+		}
+	}
+	
+	public static class BothSubscriber {
+		final ArrayList<String> calls = new ArrayList<String>();
+		
+		@Subscribe
+		public void onEvent(BaseEvent event) {
+			calls.add("base");
+		}
+		
+		@Subscribe
+		public void onEvent(ChildEvent event) {
+			calls.add("child");
+		}
+	}
+	
+	public static class PostingBaseSubscriber extends Callbacks {
+		@Subscribe(mode = Mode.Posting)
+		public void onEvent(BaseEvent event) {
+			onCallback(event);
+		}
+	}
+	
+	private TinyBus bus;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		bus = new TinyBus();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		super.tearDown();
+	}
+	
+	public void testExactClassByDefault() {
+		BaseSubscriber base = new BaseSubscriber();
+		ChildSubscriber child = new ChildSubscriber();
+		bus.registerAll(base, child);
+		
+		ChildEvent event = new ChildEvent();
+		bus.post(event);
+		
+		child.assertSameEvents(event);
+		base.assertNoEvents();
+	}
+	
+	public void testSuperclassAndInterfaceSubscribers() {
+		bus.setEventInheritance(true);
+		
+		BaseSubscriber base = new BaseSubscriber();
+		ChildSubscriber child = new ChildSubscriber();
+		TaggedSubscriber tagged = new TaggedSubscriber();
+		bus.registerAll(base, child, tagged);
+		
+		ChildEvent event = new ChildEvent();
+		bus.post(event);
+		
+		child.assertSameEvents(event);
+		base.assertSameEvents(event);
+		tagged.assertSameEvents(event);
+		
+		// supertype events do not go to subtype subscribers
+		BaseEvent baseEvent = new BaseEvent();
+		bus.post(baseEvent);
+		base.assertSameEvents(event, baseEvent);
+		child.assertSameEvents(event);
+		tagged.assertSameEvents(event);
+	}
+	
+	public void testExactClassCalledFirst() {
+		bus.setEventInheritance(true);
+		
+		BothSubscriber subscriber = new BothSubscriber();
+		bus.register(subscriber);
+		bus.post(new ChildEvent());
+		
+		assertEquals(2, subscriber.calls.size());
+		assertEquals("child", subscriber.calls.get(0));
+		assertEquals("base", subscriber.calls.get(1));
+	}
+	
+	public void testSupertypeSubscriberRegisteredAfterPost() {
+		bus.setEventInheritance(true);
+		
+		ChildSubscriber child = new ChildSubscriber();
+		bus.register(child);
+		bus.post(new ChildEvent());
+		
+		BaseSubscriber base = new BaseSubscriber();
+		bus.register(base);
+		ChildEvent event = new ChildEvent();
+		bus.post(event);
+		base.assertSameEvents(event);
+		
+		bus.unregister(base);
+		bus.post(new ChildEvent());
+		base.assertSameEvents(event);
+		assertEquals(3, child.getEventsCount());
+	}
+	
+	public void testPostInBackgroundToSupertypeSubscriber() throws Exception {
+		bus.setEventInheritance(true);
+		
+		PostingBaseSubscriber subscriber = new PostingBaseSubscriber();
+		bus.register(subscriber);
+		
+		final ChildEvent event = new ChildEvent();
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				bus.post(event);
+			}
+		};
+		thread.start();
+		thread.join();
+		
+		subscriber.assertSameEvents(event);
+	}
+	
+	public void testHasSubscribersOfSupertype() {
+		bus.register(new TaggedSubscriber());
+		assertFalse(bus.hasSubscribers(ChildEvent.class));
+		
+		bus.setEventInheritance(true);
+		assertTrue(bus.hasSubscribers(ChildEvent.class));
+		assertTrue(bus.hasSubscribers(Tagged.class));
+		assertFalse(bus.hasSubscribers(BaseEvent.class));
+	}
+	
+	public void testFlattenedTypes() {
+		Class<?>[] types = EventTypes.getTypes(ChildEvent.class);
+		assertEquals(3, types.length);
+		assertSame(ChildEvent.class, types[0]);
+		assertSame(BaseEvent.class, types[1]);
+		assertSame(Tagged.class, types[2]);
+		assertSame(types, EventTypes.getTypes(ChildEvent.class));
+	}
+	
+}
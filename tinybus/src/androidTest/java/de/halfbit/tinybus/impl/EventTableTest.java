@@ -0,0 +1,80 @@
+package de.halfbit.tinybus.impl;
+
+import junit.framework.TestCase;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.mocks.Event1;
+import de.halfbit.tinybus.mocks.Event2;
+
+public class EventTableTest extends TestCase {
+
+	public static class FarEvent {}
+	public static class UnseenEvent {}
+	public static class UnseenPostedEvent {}
+	
+	public void testIdsAreStable() {
+		int id1 = EventIds.getId(Event1.class);
+		int id2 = EventIds.getId(Event2.class);
+		assertTrue(id1 != id2);
+		assertEquals(id1, EventIds.getId(Event1.class));
+		assertEquals(id2, EventIds.getId(Event2.class));
+	}
+	
+	public void testIdsAreDense() {
+		int id = EventIds.getId(FarEvent.class);
+		assertTrue(id >= 0);
+		assertTrue(id < EventIds.size());
+	}
+	
+	public void testFindIdDoesNotAssign() {
+		assertEquals(-1, EventIds.findId(UnseenEvent.class));
+		assertEquals(-1, EventIds.findId(UnseenEvent.class));
+		
+		int id = EventIds.getId(FarEvent.class);
+		assertEquals(id, EventIds.findId(FarEvent.class));
+	}
+	
+	public void testPostDoesNotAssignId() {
+		new TinyBus().post(new UnseenPostedEvent());
+		assertEquals(-1, EventIds.findId(UnseenPostedEvent.class));
+	}
+	
+	public void testPutGetRemove() {
+		EventTable<String> table = new EventTable<String>();
+		assertTrue(table.isEmpty());
+		assertNull(table.get(3));
+		
+		assertNull(table.put(3, "three"));
+		assertEquals("three", table.put(3, "tres"));
+		assertEquals("tres", table.get(3));
+		assertEquals(1, table.size());
+		
+		assertEquals("tres", table.remove(3));
+		assertNull(table.remove(3));
+		assertNull(table.get(3));
+		assertTrue(table.isEmpty());
+	}
+	
+	public void testGrowth() {
+		EventTable<Integer> table = new EventTable<Integer>();
+		for (int i = 0; i < 1000; i += 7) {
+			table.put(i, i);
+		}
+		for (int i = 0; i < 1000; i++) {
+			if (i % 7 == 0) {
+				assertEquals(Integer.valueOf(i), table.get(i));
+			} else {
+				assertNull(table.get(i));
+			}
+		}
+		assertNull(table.get(100000));
+		assertEquals(143, table.size());
+	}
+	
+	public void testPutNullRemoves() {
+		EventTable<String> table = new EventTable<String>();
+		table.put(1, "one");
+		assertEquals("one", table.put(1, null));
+		assertTrue(table.isEmpty());
+	}
+	
+}
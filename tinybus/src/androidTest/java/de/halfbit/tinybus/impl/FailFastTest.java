@@ -1,10 +1,15 @@
 package de.halfbit.tinybus.impl;
 
 import junit.framework.TestCase;
+import de.halfbit.tinybus.Produce;
 import de.halfbit.tinybus.Subscribe;
 import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.mocks.Callbacks;
+import de.halfbit.tinybus.mocks.Event1;
+import de.halfbit.tinybus.mocks.Event2;
 import de.halfbit.tinybus.mocks.Producer1;
 import de.halfbit.tinybus.mocks.Subscriber1;
+import de.halfbit.tinybus.mocks.Subscriber2;
 
 public class FailFastTest extends TestCase {
 	
@@ -131,4 +136,59 @@ public class FailFastTest extends TestCase {
 		}
 	}
 
+	public void testQueuedRegisterProcessedAfterException() {
+		bus.register(new Object() {
+			@Subscribe
+			public void onEvent(String event) {
+				bus.register(subscriber);
+				throw new IllegalArgumentException(event);
+			}
+		});
+		
+		try {
+			bus.post("event");
+			fail("exception is expected");
+		} catch (RuntimeException e) {
+			// OK
+		}
+		
+		// queued register task is processed before the event gets dispatched
+		Event1 event = new Event1("event");
+		bus.post(event);
+		subscriber.assertSameEvents(event);
+	}
+
+	public static class SubscribingProducer extends Callbacks {
+		@Subscribe
+		public void onEvent(Event2 event) {
+			onCallback(event);
+		}
+		
+		@Produce
+		public Event1 getEvent() {
+			return null;
+		}
+	}
+	
+	public void testPlansUpdatedWhenProducerRegistrationFails() {
+		bus.register(producer);
+		bus.register(new Subscriber2());
+		bus.post(new Event2(1)); // caches dispatch plan
+		
+		SubscribingProducer subscribingProducer = new SubscribingProducer();
+		try {
+			// second producer of Event1 is rejected after receivers are registered
+			bus.register(subscribingProducer);
+			fail("exception is expected");
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+		
+		// plan reflects actually registered receivers
+		Event2 event = new Event2(2);
+		bus.post(event);
+		assertTrue(bus.hasRegistered(subscribingProducer));
+		subscribingProducer.assertSameEvents(event);
+	}
+	
 }
@@ -0,0 +1,178 @@
+package de.halfbit.tinybus.impl;
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.Subscribe.Mode;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.TinyBus.FrameScheduler;
+import de.halfbit.tinybus.mocks.Callbacks;
+import de.halfbit.tinybus.mocks.Event1;
+import de.halfbit.tinybus.mocks.Event2;
+import de.halfbit.tinybus.mocks.Subscriber1;
+
+public class FrameModeTest extends TestCase {
+
+	private TinyBus bus;
+	private TestScheduler scheduler;
+	
+	public static class TestScheduler implements FrameScheduler {
+		final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+		
+		@Override
+		public void scheduleFrame(Runnable task) {
+			tasks.add(task);
+		}
+		
+		void runFrame() {
+			ArrayList<Runnable> frameTasks = new ArrayList<Runnable>(tasks);
+			tasks.clear();
+			for (Runnable task : frameTasks) {
+				task.run();
+			}
+		}
+	}
+	
+	public static class FrameSubscriber extends Callbacks {
+		@Subscribe(mode = Mode.Frame)
+		public void onEvent(Event1 event) {
+			onCallback(event);
+		}
+		
+		@Subscribe(mode = Mode.Frame)
+		public void onEvent(Event2 event) {
+			onCallback(event);
+		}
+	}
+	
+	public class PostingFrameSubscriber extends Callbacks {
+		@Subscribe(mode = Mode.Frame)
+		public void onEvent(Event1 event) {
+			onCallback(event);
+			bus.post(new Event1("next"));
+		}
+	}
+	
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		scheduler = new TestScheduler();
+		bus = new TinyBus().setFrameScheduler(scheduler);
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		scheduler = null;
+		super.tearDown();
+	}
+	
+	public void testLatestEventDeliveredInFrame() {
+		FrameSubscriber subscriber = new FrameSubscriber();
+		bus.register(subscriber);
+		
+		Event1 event1 = new Event1("1");
+		Event1 event2 = new Event1("2");
+		Event1 event3 = new Event1("3");
+		bus.post(event1);
+		bus.post(event2);
+		bus.post(event3);
+		
+		subscriber.assertNoEvents();
+		assertEquals(1, scheduler.tasks.size());
+		
+		scheduler.runFrame();
+		subscriber.assertSameEvents(event3);
+		assertEquals(0, scheduler.tasks.size());
+	}
+	
+	public void testEventTypesDeliveredInPostOrder() {
+		FrameSubscriber subscriber = new FrameSubscriber();
+		bus.register(subscriber);
+		
+		Event2 event1 = new Event2(1);
+		Event1 event2 = new Event1("2");
+		Event2 event3 = new Event2(3);
+		bus.post(event1);
+		bus.post(event2);
+		bus.post(event3);
+		
+		scheduler.runFrame();
+		subscriber.assertSameEvents(event3, event2);
+	}
+	
+	public void testMainSubscriberNotDelayed() {
+		FrameSubscriber frameSubscriber = new FrameSubscriber();
+		Subscriber1 mainSubscriber = new Subscriber1();
+		bus.register(frameSubscriber);
+		bus.register(mainSubscriber);
+		
+		Event1 event1 = new Event1("1");
+		Event1 event2 = new Event1("2");
+		bus.post(event1);
+		bus.post(event2);
+		
+		mainSubscriber.assertSameEvents(event1, event2);
+		frameSubscriber.assertNoEvents();
+		
+		scheduler.runFrame();
+		frameSubscriber.assertSameEvents(event2);
+	}
+	
+	public void testNoFrameWithoutFrameSubscribers() {
+		bus.register(new Subscriber1());
+		bus.post(new Event1("1"));
+		assertEquals(0, scheduler.tasks.size());
+	}
+	
+	public void testUnregisteredBeforeFrame() {
+		FrameSubscriber subscriber = new FrameSubscriber();
+		bus.register(subscriber);
+		bus.post(new Event1("1"));
+		bus.unregister(subscriber);
+		
+		scheduler.runFrame();
+		subscriber.assertNoEvents();
+	}
+	
+	public void testPostInFrameScheduledForNextFrame() {
+		PostingFrameSubscriber subscriber = new PostingFrameSubscriber();
+		bus.register(subscriber);
+		
+		Event1 event = new Event1("1");
+		bus.post(event);
+		scheduler.runFrame();
+		assertEquals(1, subscriber.getEventsCount());
+		assertEquals(1, scheduler.tasks.size());
+		
+		scheduler.runFrame();
+		assertEquals(2, subscriber.getEventsCount());
+	}
+	
+	public void testNoLooperDeliveredWhenQueueIsProcessed() {
+		// test thread has no Looper and there is no scheduler
+		bus = new TinyBus();
+		final FrameSubscriber frameSubscriber = new FrameSubscriber();
+		final Event1 event3 = new Event1("3");
+		bus.register(frameSubscriber);
+		bus.register(new Object() {
+			@Subscribe
+			public void onEvent(Event2 event) {
+				bus.post(new Event1("1"));
+				bus.post(new Event1("2"));
+				bus.post(event3);
+				frameSubscriber.assertNoEvents();
+			}
+		});
+		
+		Event2 event2 = new Event2(1);
+		bus.post(event2);
+		frameSubscriber.assertSameEvents(event2, event3);
+		
+		Event1 event4 = new Event1("4");
+		bus.post(event4);
+		frameSubscriber.assertSameEvents(event2, event3, event4);
+	}
+	
+}
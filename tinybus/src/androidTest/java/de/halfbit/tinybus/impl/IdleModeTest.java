@@ -0,0 +1,112 @@
+package de.halfbit.tinybus.impl;
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+import de.halfbit.tinybus.Produce;
+import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.Subscribe.Mode;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.mocks.Event1;
+import de.halfbit.tinybus.mocks.Event2;
+
+public class IdleModeTest extends TestCase {
+
+	private TinyBus bus;
+	private ArrayList<String> calls;
+	
+	public class IdleSubscriber {
+		@Subscribe(mode = Mode.Idle)
+		public void onEvent(Event1 event) {
+			calls.add("idle:" + event.value);
+		}
+	}
+	
+	public class MainSubscriber {
+		@Subscribe
+		public void onEvent(Event1 event) {
+			calls.add("main:" + event.value);
+		}
+	}
+	
+	public class PostingSubscriber {
+		private final Object unregister;
+		
+		public PostingSubscriber(Object unregister) {
+			this.unregister = unregister;
+		}
+		
+		@Subscribe
+		public void onEvent(Event2 event) {
+			bus.post(new Event1("1"));
+			bus.post(new Event1("2"));
+			bus.post(new Event1("3"));
+			if (unregister != null) {
+				bus.unregister(unregister);
+			}
+		}
+	}
+	
+	public static class Producer {
+		@Produce
+		public Event1 getEvent() {
+			return new Event1("produced");
+		}
+	}
+	
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		bus = new TinyBus();
+		calls = new ArrayList<String>();
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		calls = null;
+		super.tearDown();
+	}
+	
+	public void testIdleSubscriberCalledAfterQueueIsProcessed() {
+		bus.register(new IdleSubscriber());
+		bus.register(new MainSubscriber());
+		bus.register(new PostingSubscriber(null));
+		bus.post(new Event2(1));
+		
+		assertEquals(6, calls.size());
+		assertEquals("main:1", calls.get(0));
+		assertEquals("main:2", calls.get(1));
+		assertEquals("main:3", calls.get(2));
+		assertEquals("idle:1", calls.get(3));
+		assertEquals("idle:2", calls.get(4));
+		assertEquals("idle:3", calls.get(5));
+	}
+	
+	public void testUnregisteredBeforeIdle() {
+		IdleSubscriber subscriber = new IdleSubscriber();
+		bus.register(subscriber);
+		bus.register(new PostingSubscriber(subscriber));
+		bus.post(new Event2(1));
+		
+		assertEquals(0, calls.size());
+	}
+	
+	public void testProducedEventDeliveredOnRegistration() {
+		bus.register(new Producer());
+		bus.register(new IdleSubscriber());
+		
+		assertEquals(1, calls.size());
+		assertEquals("idle:produced", calls.get(0));
+	}
+	
+	public void testNegativeDeferral() {
+		try {
+			bus.setMaxIdleDeferral(-1);
+			fail("exception expected");
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+	}
+	
+}
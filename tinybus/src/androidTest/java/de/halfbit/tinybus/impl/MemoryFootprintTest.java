@@ -0,0 +1,93 @@
+package de.halfbit.tinybus.impl;
+
+import junit.framework.TestCase;
+import de.halfbit.tinybus.Produce;
+import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.mocks.Event1;
+import de.halfbit.tinybus.mocks.Event2;
+import de.halfbit.tinybus.mocks.Event3;
+
+/**
+ * Checks that heap used by subscriber metadata per registered class and
+ * by a single registration stays within limits. Numbers are measured by
+ * comparing used heap before and after allocation, thus they are approximate.
+ */
+public class MemoryFootprintTest extends TestCase {
+
+	private static final int INSTANCES_NUMBER = 5000;
+	
+	// keeps created objects reachable while measuring
+	private Object[] mRetained;
+	
+	public static class SubscriberProducer {
+		
+		@Subscribe
+		public void onEvent(Event1 event) {}
+		
+		@Subscribe
+		public void onEvent(Event2 event) {}
+		
+		@Produce
+		public Event3 getEvent() {
+			return null;
+		}
+	}
+	
+	public static class Subscriber {
+		
+		@Subscribe
+		public void onEvent(Event1 event) {}
+		
+		@Subscribe
+		public void onEvent(Event2 event) {}
+	}
+	
+	private static long getUsedMemory() {
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			System.runFinalization();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		mRetained = null;
+		super.tearDown();
+	}
+	
+	public void testBytesPerRegisteredClass() {
+		new ObjectsMeta(SubscriberProducer.class, null); // warm up reflection caches
+		
+		mRetained = new Object[INSTANCES_NUMBER];
+		final long before = getUsedMemory();
+		for (int i = 0; i < INSTANCES_NUMBER; i++) {
+			// metadata is created once per class, every instance here simulates one class
+			mRetained[i] = new ObjectsMeta(SubscriberProducer.class, null);
+		}
+		final long bytes = (getUsedMemory() - before) / INSTANCES_NUMBER;
+		assertTrue("unexpected footprint: " + bytes, bytes < 4096);
+	}
+	
+	public void testBytesPerRegistration() {
+		final TinyBus bus = new TinyBus();
+		final Subscriber[] subscribers = new Subscriber[INSTANCES_NUMBER];
+		for (int i = 0; i < INSTANCES_NUMBER; i++) {
+			subscribers[i] = new Subscriber();
+		}
+		
+		// first registration creates class metadata, which is not counted
+		bus.register(subscribers[0]);
+		
+		mRetained = new Object[] { bus, subscribers };
+		final long before = getUsedMemory();
+		for (int i = 1; i < INSTANCES_NUMBER; i++) {
+			bus.register(subscribers[i]);
+		}
+		final long bytes = (getUsedMemory() - before) / (INSTANCES_NUMBER - 1);
+		assertTrue("unexpected footprint: " + bytes, bytes < 1024);
+	}
+	
+}
@@ -0,0 +1,135 @@
+package de.halfbit.tinybus.impl;
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+import de.halfbit.tinybus.ConcurrentBus;
+import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.Subscribe.Mode;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.mocks.Event1;
+import de.halfbit.tinybus.mocks.Event2;
+import de.halfbit.tinybus.mocks.Producer1;
+
+public class MultipleCallbacksTest extends TestCase {
+
+	public static class TwoCallbacksSubscriber {
+		final ArrayList<String> calls = new ArrayList<String>();
+		
+		@Subscribe
+		public void onEventA(Event1 event) {
+			calls.add("a:" + event.value);
+		}
+		
+		@Subscribe(mode = Mode.Posting)
+		public void onEventB(Event1 event) {
+			calls.add("b:" + event.value);
+		}
+		
+		@Subscribe
+		public void onEvent(Event2 event) {
+			calls.add("event2");
+		}
+	}
+	
+	public static class InheritedCallbackSubscriber extends TwoCallbacksSubscriber {
+		@Subscribe
+		public void onEventC(Event1 event) {
+			calls.add("c:" + event.value);
+		}
+	}
+	
+	public static class PostingSubscriber {
+		final ArrayList<String> calls = new ArrayList<String>();
+		
+		@Subscribe(mode = Mode.Posting)
+		public void onEventA(Event1 event) {
+			calls.add("a");
+		}
+		
+		@Subscribe(mode = Mode.Posting)
+		public void onEventB(Event1 event) {
+			calls.add("b");
+		}
+	}
+	
+	private TinyBus bus;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		bus = new TinyBus();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		super.tearDown();
+	}
+	
+	private static void assertCalls(ArrayList<String> calls, String... expected) {
+		assertEquals(expected.length, calls.size());
+		for (String call : expected) {
+			assertTrue("missing call: " + call, calls.contains(call));
+		}
+	}
+	
+	public void testAllCallbacksCalled() {
+		TwoCallbacksSubscriber subscriber = new TwoCallbacksSubscriber();
+		bus.register(subscriber);
+		bus.post(new Event1("1"));
+		assertCalls(subscriber.calls, "a:1", "b:1");
+		
+		bus.post(new Event2(2));
+		assertCalls(subscriber.calls, "a:1", "b:1", "event2");
+	}
+	
+	public void testInheritedAndOwnCallbacksCalled() {
+		InheritedCallbackSubscriber subscriber = new InheritedCallbackSubscriber();
+		bus.register(subscriber);
+		bus.post(new Event1("1"));
+		assertCalls(subscriber.calls, "a:1", "b:1", "c:1");
+	}
+	
+	public void testNoCallbacksAfterUnregister() {
+		TwoCallbacksSubscriber subscriber = new TwoCallbacksSubscriber();
+		bus.register(subscriber);
+		bus.unregister(subscriber);
+		bus.post(new Event1("1"));
+		assertCalls(subscriber.calls);
+		assertFalse(bus.hasSubscribers(Event1.class));
+	}
+	
+	public void testStickyEventToAllCallbacks() {
+		bus.postSticky(new Event1("sticky"));
+		
+		TwoCallbacksSubscriber subscriber = new TwoCallbacksSubscriber();
+		bus.register(subscriber);
+		assertCalls(subscriber.calls, "a:sticky", "b:sticky");
+	}
+	
+	public void testProducedEventToAllCallbacks() {
+		Producer1 producer = new Producer1();
+		producer.lastEvent = new Event1("produced");
+		bus.register(producer);
+		
+		TwoCallbacksSubscriber subscriber = new TwoCallbacksSubscriber();
+		bus.register(subscriber);
+		assertCalls(subscriber.calls, "a:produced", "b:produced");
+		
+		// new producer delivers to all callbacks of registered subscriber
+		bus.unregister(producer);
+		subscriber.calls.clear();
+		bus.register(producer);
+		assertCalls(subscriber.calls, "a:produced", "b:produced");
+	}
+	
+	public void testConcurrentBus() {
+		ConcurrentBus concurrentBus = new ConcurrentBus();
+		PostingSubscriber subscriber = new PostingSubscriber();
+		concurrentBus.register(subscriber);
+		concurrentBus.post(new Event1("1"));
+		assertCalls(subscriber.calls, "a", "b");
+	}
+	
+}
@@ -0,0 +1,68 @@
+package de.halfbit.tinybus.impl;
+
+import junit.framework.TestCase;
+import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.mocks.Event1;
+import de.halfbit.tinybus.mocks.Event2;
+import de.halfbit.tinybus.mocks.Subscriber1;
+
+public class PostWithoutSubscribersTest extends TestCase {
+
+	private TinyBus bus;
+
+	public class RegisteringSubscriber {
+		private final Object subscriber;
+		private final Object event;
+
+		public RegisteringSubscriber(Object subscriber, Object event) {
+			this.subscriber = subscriber;
+			this.event = event;
+		}
+
+		@Subscribe
+		public void onEvent(Event2 e) {
+			bus.register(subscriber);
+			bus.post(event);
+		}
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		bus = new TinyBus();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		super.tearDown();
+	}
+
+	public void testPostWithoutSubscribers() {
+		bus.post(new Event1("event"));
+
+		Subscriber1 subscriber = new Subscriber1();
+		bus.register(subscriber);
+		subscriber.assertNoEvents();
+	}
+
+	public void testPostAfterLastSubscriberUnregistered() {
+		Subscriber1 subscriber = new Subscriber1();
+		bus.register(subscriber);
+		bus.unregister(subscriber);
+
+		bus.post(new Event1("event"));
+		subscriber.assertNoEvents();
+	}
+
+	public void testPostToSubscriberRegisteredInsidePost() {
+		Subscriber1 subscriber = new Subscriber1();
+		Event1 event = new Event1("event");
+
+		bus.register(new RegisteringSubscriber(subscriber, event));
+		bus.post(new Event2(2));
+		subscriber.assertSameEvents(event);
+	}
+
+}
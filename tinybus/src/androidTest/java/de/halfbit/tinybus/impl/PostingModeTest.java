@@ -0,0 +1,128 @@
+package de.halfbit.tinybus.impl;
+
+import junit.framework.TestCase;
+import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.Subscribe.Mode;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.mocks.Callbacks;
+import de.halfbit.tinybus.mocks.Event1;
+import de.halfbit.tinybus.mocks.Subscriber1;
+
+public class PostingModeTest extends TestCase {
+
+	private TinyBus bus;
+	
+	public static class PostingSubscriber extends Callbacks {
+		volatile Thread thread;
+		
+		@Subscribe(mode = Mode.Posting)
+		public void onEvent(Event1 event) {
+			thread = Thread.currentThread();
+			onCallback(event);
+		}
+	}
+	
+	public static class UnknownModeSubscriber {
+		@Subscribe(mode = 7)
+		public void onEvent(Event1 event) {
+		}
+	}
+	
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		bus = new TinyBus();
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		super.tearDown();
+	}
+	
+	private Thread postInThread(final Object event) throws InterruptedException {
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				bus.post(event);
+			}
+		};
+		thread.start();
+		thread.join();
+		return thread;
+	}
+	
+	public void testCalledInPostingThread() throws InterruptedException {
+		PostingSubscriber subscriber = new PostingSubscriber();
+		bus.register(subscriber);
+		
+		Event1 event = new Event1("event");
+		Thread thread = postInThread(event);
+		
+		subscriber.assertSameEvents(event);
+		assertSame(thread, subscriber.thread);
+	}
+	
+	public void testCalledInMainThread() {
+		PostingSubscriber subscriber = new PostingSubscriber();
+		Subscriber1 mainSubscriber = new Subscriber1();
+		bus.register(subscriber);
+		bus.register(mainSubscriber);
+		
+		Event1 event = new Event1("event");
+		bus.post(event);
+		
+		subscriber.assertSameEvents(event);
+		mainSubscriber.assertSameEvents(event);
+		assertSame(Thread.currentThread(), subscriber.thread);
+	}
+	
+	public void testNotCalledAfterUnregister() throws InterruptedException {
+		PostingSubscriber subscriber1 = new PostingSubscriber();
+		PostingSubscriber subscriber2 = new PostingSubscriber();
+		bus.register(subscriber1);
+		bus.register(subscriber2);
+		bus.unregister(subscriber1);
+		
+		Event1 event = new Event1("event");
+		postInThread(event);
+		
+		subscriber1.assertNoEvents();
+		subscriber2.assertSameEvents(event);
+		
+		bus.unregister(subscriber2);
+		subscriber2.clearEvents();
+		postInThread(new Event1("event2"));
+		subscriber2.assertNoEvents();
+	}
+	
+	public void testRegisterAllUnregisterAll() throws InterruptedException {
+		PostingSubscriber subscriber1 = new PostingSubscriber();
+		PostingSubscriber subscriber2 = new PostingSubscriber();
+		bus.registerAll(subscriber1, subscriber2);
+		
+		Event1 event = new Event1("event");
+		postInThread(event);
+		
+		subscriber1.assertSameEvents(event);
+		subscriber2.assertSameEvents(event);
+		
+		bus.unregisterAll(subscriber1, subscriber2);
+		subscriber1.clearEvents();
+		subscriber2.clearEvents();
+		postInThread(new Event1("event2"));
+		
+		subscriber1.assertNoEvents();
+		subscriber2.assertNoEvents();
+	}
+	
+	public void testUnknownMode() {
+		try {
+			bus.register(new UnknownModeSubscriber());
+			fail("exception expected");
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+	}
+	
+}
@@ -0,0 +1,231 @@
+package de.halfbit.tinybus.impl;
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+import de.halfbit.tinybus.Produce;
+import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.Subscribe.Mode;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.mocks.Event1;
+
+public class PriorityAndCancellationTest extends TestCase {
+
+	public static class Recorder {
+		final ArrayList<String> calls = new ArrayList<String>();
+		TinyBus bus;
+		boolean cancel;
+	}
+	
+	public static class LowSubscriber {
+		final Recorder recorder;
+		LowSubscriber(Recorder recorder) { this.recorder = recorder; }
+		
+		@Subscribe(priority = -2)
+		public void onEvent(Event1 event) {
+			recorder.calls.add("low");
+		}
+	}
+	
+	public static class DefaultSubscriber {
+		final Recorder recorder;
+		DefaultSubscriber(Recorder recorder) { this.recorder = recorder; }
+		
+		@Subscribe
+		public void onEvent(Event1 event) {
+			recorder.calls.add("default");
+		}
+	}
+	
+	public static class HighSubscriber {
+		final Recorder recorder;
+		HighSubscriber(Recorder recorder) { this.recorder = recorder; }
+		
+		@Subscribe(priority = 5)
+		public void onEvent(Event1 event) {
+			recorder.calls.add("high");
+			if (recorder.cancel) {
+				recorder.bus.cancelEventDelivery(event);
+			}
+		}
+	}
+	
+	public static class PostingSubscriber {
+		final Recorder recorder;
+		PostingSubscriber(Recorder recorder) { this.recorder = recorder; }
+		
+		@Subscribe(mode = Mode.Posting, priority = 1)
+		public void onEventHigh(Event1 event) {
+			recorder.calls.add("posting-high");
+		}
+		
+		@Subscribe(mode = Mode.Posting)
+		public void onEventDefault(Event1 event) {
+			recorder.calls.add("posting-default");
+		}
+	}
+	
+	public static class IdleSubscriber {
+		final Recorder recorder;
+		IdleSubscriber(Recorder recorder) { this.recorder = recorder; }
+		
+		@Subscribe(mode = Mode.Idle)
+		public void onEvent(Event1 event) {
+			recorder.calls.add("idle");
+		}
+	}
+	
+	public static class WrongEventCanceler {
+		final Recorder recorder;
+		WrongEventCanceler(Recorder recorder) { this.recorder = recorder; }
+		
+		@Subscribe
+		public void onEvent(Event1 event) {
+			try {
+				recorder.bus.cancelEventDelivery(new Event1("other"));
+			} catch (IllegalArgumentException e) {
+				recorder.calls.add("rejected");
+			}
+		}
+	}
+	
+	public static class Event1Producer {
+		final Event1 event = new Event1("produced");
+		
+		@Produce
+		public Event1 produceEvent() {
+			return event;
+		}
+	}
+	
+	private TinyBus bus;
+	private Recorder recorder;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		bus = new TinyBus();
+		recorder = new Recorder();
+		recorder.bus = bus;
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		recorder = null;
+		super.tearDown();
+	}
+	
+	private void assertCalls(String... expected) {
+		assertEquals(expected.length, recorder.calls.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], recorder.calls.get(i));
+		}
+	}
+	
+	public void testMainSubscribersCalledByPriority() {
+		bus.register(new LowSubscriber(recorder));
+		bus.register(new DefaultSubscriber(recorder));
+		bus.register(new HighSubscriber(recorder));
+		
+		bus.post(new Event1("1"));
+		assertCalls("high", "default", "low");
+	}
+	
+	public void testPostingSubscribersCalledByPriority() {
+		bus.register(new PostingSubscriber(recorder));
+		bus.post(new Event1("1"));
+		assertCalls("posting-high", "posting-default");
+	}
+	
+	public void testCancelDelivery() {
+		recorder.cancel = true;
+		bus.registerAll(new LowSubscriber(recorder), new DefaultSubscriber(recorder),
+				new HighSubscriber(recorder), new IdleSubscriber(recorder));
+		
+		bus.post(new Event1("1"));
+		assertCalls("high");
+		
+		// next event is delivered to all subscribers again
+		recorder.cancel = false;
+		recorder.calls.clear();
+		bus.post(new Event1("2"));
+		assertCalls("high", "default", "low", "idle");
+	}
+	
+	public void testPostingSubscribersNotCanceled() {
+		recorder.cancel = true;
+		bus.registerAll(new HighSubscriber(recorder), new PostingSubscriber(recorder),
+				new LowSubscriber(recorder));
+		
+		bus.post(new Event1("1"));
+		assertCalls("posting-high", "posting-default", "high");
+	}
+	
+	public void testCancelOutsideOfSubscriber() {
+		try {
+			bus.cancelEventDelivery(new Event1("1"));
+			fail("exception expected");
+		} catch (IllegalStateException e) {
+			// OK
+		}
+	}
+	
+	public void testCancelWrongEvent() {
+		bus.register(new WrongEventCanceler(recorder));
+		bus.register(new LowSubscriber(recorder));
+		bus.post(new Event1("1"));
+		assertCalls("rejected", "low");
+	}
+	
+	public void testCancelStickyEventOnRegister() {
+		recorder.cancel = true;
+		bus.postSticky(new Event1("sticky"));
+		
+		bus.register(new HighSubscriber(recorder));
+		bus.register(new LowSubscriber(recorder));
+		assertCalls("high", "low");
+		
+		// posted events are still canceled
+		recorder.calls.clear();
+		bus.post(new Event1("1"));
+		assertCalls("high");
+	}
+	
+	public void testCancelStickyEventOnRegisterAll() {
+		recorder.cancel = true;
+		bus.postSticky(new Event1("sticky"));
+		
+		bus.registerAll(new HighSubscriber(recorder), new LowSubscriber(recorder));
+		assertCalls("high", "low");
+	}
+	
+	public void testCancelProducedEventOnRegister() {
+		recorder.cancel = true;
+		bus.register(new Event1Producer());
+		
+		bus.register(new HighSubscriber(recorder));
+		bus.register(new LowSubscriber(recorder));
+		assertCalls("high", "low");
+	}
+	
+	public void testCancelProducedEventOnProducerRegister() {
+		recorder.cancel = true;
+		bus.register(new HighSubscriber(recorder));
+		bus.register(new LowSubscriber(recorder));
+		
+		// new producer delivers its event to all registered subscribers
+		bus.register(new Event1Producer());
+		assertEquals(2, recorder.calls.size());
+		assertTrue(recorder.calls.contains("high"));
+		assertTrue(recorder.calls.contains("low"));
+	}
+	
+	public void testCancelProducedEventOnRegisterAll() {
+		recorder.cancel = true;
+		bus.registerAll(new Event1Producer(), new HighSubscriber(recorder), 
+				new LowSubscriber(recorder));
+		assertCalls("high", "low");
+	}
+	
+}
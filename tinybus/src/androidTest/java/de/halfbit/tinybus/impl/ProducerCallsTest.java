@@ -0,0 +1,127 @@
+package de.halfbit.tinybus.impl;
+
+import junit.framework.TestCase;
+import de.halfbit.tinybus.Produce;
+import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.mocks.Event1;
+import de.halfbit.tinybus.mocks.Event2;
+import de.halfbit.tinybus.mocks.Subscriber1;
+
+public class ProducerCallsTest extends TestCase {
+
+	private TinyBus bus;
+	private CountingProducer producer;
+
+	public static class CountingProducer {
+		int calls;
+		Event1 lastEvent = new Event1("producer");
+
+		@Produce
+		public Event1 getLastEvent() {
+			calls++;
+			return lastEvent;
+		}
+	}
+
+	public static class RegisteringSubscriber {
+		private final TinyBus bus;
+		private final Object[] objects;
+
+		public RegisteringSubscriber(TinyBus bus, Object... objects) {
+			this.bus = bus;
+			this.objects = objects;
+		}
+
+		@Subscribe
+		public void onEvent(Event2 event) {
+			for (Object obj : objects) {
+				bus.register(obj);
+			}
+		}
+	}
+
+	public class ChangingProducerSubscriber {
+		private final Object before;
+		private final Event1 event;
+		private final Object after;
+
+		public ChangingProducerSubscriber(Object before, Event1 event, Object after) {
+			this.before = before;
+			this.event = event;
+			this.after = after;
+		}
+
+		@Subscribe
+		public void onEvent(Event2 e) {
+			bus.register(before);
+			producer.lastEvent = event;
+			bus.post(event);
+			bus.register(after);
+		}
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		bus = new TinyBus();
+		producer = new CountingProducer();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		producer = null;
+		super.tearDown();
+	}
+
+	public void testProducerCalledOncePerPass() {
+		final Subscriber1 subscriber1 = new Subscriber1();
+		final Subscriber1 subscriber2 = new Subscriber1();
+		final Subscriber1 subscriber3 = new Subscriber1();
+
+		bus.register(producer);
+		bus.register(new RegisteringSubscriber(bus, subscriber1, subscriber2, subscriber3));
+		bus.post(new Event2(1));
+
+		assertEquals(1, producer.calls);
+		subscriber1.assertSameEvents(producer.lastEvent);
+		subscriber2.assertSameEvents(producer.lastEvent);
+		subscriber3.assertSameEvents(producer.lastEvent);
+	}
+
+	public void testProducerCalledInEachPass() {
+		bus.register(producer);
+		bus.register(new Subscriber1());
+		bus.register(new Subscriber1());
+		assertEquals(2, producer.calls);
+	}
+
+	public void testProducerCalledAgainAfterPost() {
+		final Subscriber1 subscriber1 = new Subscriber1();
+		final Subscriber1 subscriber2 = new Subscriber1();
+		final Event1 event = new Event1("posted");
+
+		bus.register(producer);
+		bus.register(new ChangingProducerSubscriber(subscriber1, event, subscriber2));
+		bus.post(new Event2(1));
+
+		assertEquals(2, producer.calls);
+		subscriber2.assertSameEvents(event);
+	}
+
+	public void testNullEventMemoized() {
+		final Subscriber1 subscriber1 = new Subscriber1();
+		final Subscriber1 subscriber2 = new Subscriber1();
+
+		producer.lastEvent = null;
+		bus.register(producer);
+		bus.register(new RegisteringSubscriber(bus, subscriber1, subscriber2));
+		bus.post(new Event2(1));
+
+		assertEquals(1, producer.calls);
+		subscriber1.assertNoEvents();
+		subscriber2.assertNoEvents();
+	}
+
+}
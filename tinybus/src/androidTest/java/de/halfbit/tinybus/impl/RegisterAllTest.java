@@ -0,0 +1,135 @@
+package de.halfbit.tinybus.impl;
+
+import junit.framework.TestCase;
+import de.halfbit.tinybus.Produce;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.mocks.Event1;
+import de.halfbit.tinybus.mocks.Event2;
+import de.halfbit.tinybus.mocks.Producer2;
+import de.halfbit.tinybus.mocks.Subscriber1;
+import de.halfbit.tinybus.mocks.Subscriber2;
+
+public class RegisterAllTest extends TestCase {
+
+	private TinyBus bus;
+
+	public static class CountingProducer {
+		int calls;
+		Event1 lastEvent = new Event1("producer");
+
+		@Produce
+		public Event1 getLastEvent() {
+			calls++;
+			return lastEvent;
+		}
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		bus = new TinyBus();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		super.tearDown();
+	}
+
+	public void testRegisterAllSubscribers() {
+		Subscriber1 subscriber1 = new Subscriber1();
+		Subscriber1 subscriber2 = new Subscriber1();
+		bus.registerAll(subscriber1, subscriber2);
+
+		assertTrue(bus.hasRegistered(subscriber1));
+		assertTrue(bus.hasRegistered(subscriber2));
+
+		Event1 event = new Event1("event");
+		bus.post(event);
+		subscriber1.assertSameEvents(event);
+		subscriber2.assertSameEvents(event);
+	}
+
+	public void testUnregisterAll() {
+		Subscriber1 subscriber1 = new Subscriber1();
+		Subscriber2 subscriber2 = new Subscriber2();
+		Producer2 producer = new Producer2();
+		bus.registerAll(subscriber1, subscriber2, producer);
+		bus.unregisterAll(subscriber1, subscriber2, producer);
+
+		assertFalse(bus.hasRegistered(subscriber1));
+		assertFalse(bus.hasRegistered(subscriber2));
+		assertFalse(bus.hasRegistered(producer));
+
+		subscriber1.clearEvents();
+		subscriber2.clearEvents();
+		bus.post(new Event1("event"));
+		subscriber1.assertNoEvents();
+		subscriber2.assertNoEvents();
+	}
+
+	public void testProducerCalledOnce() {
+		CountingProducer producer = new CountingProducer();
+		bus.register(producer);
+
+		Subscriber1 subscriber1 = new Subscriber1();
+		Subscriber1 subscriber2 = new Subscriber1();
+		Subscriber1 subscriber3 = new Subscriber1();
+		bus.registerAll(subscriber1, subscriber2, subscriber3);
+
+		assertEquals(1, producer.calls);
+		subscriber1.assertSameEvents(producer.lastEvent);
+		subscriber2.assertSameEvents(producer.lastEvent);
+		subscriber3.assertSameEvents(producer.lastEvent);
+	}
+
+	public void testProducerAndSubscribersInOneBatch() {
+		Subscriber1 registered = new Subscriber1();
+		bus.register(registered);
+
+		CountingProducer producer = new CountingProducer();
+		Subscriber1 subscriber1 = new Subscriber1();
+		Subscriber1 subscriber2 = new Subscriber1();
+		bus.registerAll(subscriber1, producer, subscriber2);
+
+		assertEquals(1, producer.calls);
+		registered.assertSameEvents(producer.lastEvent);
+		subscriber1.assertSameEvents(producer.lastEvent);
+		subscriber2.assertSameEvents(producer.lastEvent);
+	}
+
+	public void testSubscriberForManyEventTypes() {
+		Producer2 producer = new Producer2();
+		bus.register(producer);
+
+		Subscriber2 subscriber = new Subscriber2();
+		bus.registerAll(subscriber);
+		subscriber.assertEventsAnyOrder(producer.lastEvent1, producer.lastEvent2);
+	}
+
+	public void testStickyEventDeliveredOnce() {
+		CountingProducer producer = new CountingProducer();
+		bus.register(producer);
+
+		Event1 event = new Event1("sticky");
+		bus.postSticky(event);
+
+		Subscriber1 subscriber1 = new Subscriber1();
+		Subscriber1 subscriber2 = new Subscriber1();
+		bus.registerAll(subscriber1, subscriber2);
+
+		assertEquals(0, producer.calls);
+		subscriber1.assertSameEvents(event);
+		subscriber2.assertSameEvents(event);
+	}
+
+	public void testNullObject() {
+		try {
+			bus.registerAll(new Subscriber1(), null);
+			fail("exception expected");
+		} catch (NullPointerException e) {
+			// OK
+		}
+	}
+
+}
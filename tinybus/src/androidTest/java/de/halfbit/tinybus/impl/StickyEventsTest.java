@@ -0,0 +1,118 @@
+package de.halfbit.tinybus.impl;
+
+import junit.framework.TestCase;
+import de.halfbit.tinybus.Produce;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.mocks.Event1;
+import de.halfbit.tinybus.mocks.Event2;
+import de.halfbit.tinybus.mocks.Subscriber1;
+import de.halfbit.tinybus.mocks.Subscriber2;
+
+public class StickyEventsTest extends TestCase {
+
+	private TinyBus bus;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		bus = new TinyBus();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		super.tearDown();
+	}
+
+	public void testStickyEventDeliveredToRegisteredSubscriber() {
+		Subscriber1 subscriber = new Subscriber1();
+		bus.register(subscriber);
+
+		Event1 event = new Event1("sticky");
+		bus.postSticky(event);
+		subscriber.assertSameEvents(event);
+	}
+
+	public void testStickyEventDeliveredOnRegister() {
+		Event1 event = new Event1("sticky");
+		bus.postSticky(event);
+
+		Subscriber1 subscriber1 = new Subscriber1();
+		bus.register(subscriber1);
+		subscriber1.assertSameEvents(event);
+
+		Subscriber1 subscriber2 = new Subscriber1();
+		bus.register(subscriber2);
+		subscriber2.assertSameEvents(event);
+	}
+
+	public void testLatestStickyEventDelivered() {
+		bus.postSticky(new Event1("sticky1"));
+		Event1 event = new Event1("sticky2");
+		bus.postSticky(event);
+
+		Subscriber1 subscriber = new Subscriber1();
+		bus.register(subscriber);
+		subscriber.assertSameEvents(event);
+	}
+
+	public void testRemoveSticky() {
+		bus.postSticky(new Event1("sticky"));
+		bus.removeSticky(Event1.class);
+
+		Subscriber1 subscriber = new Subscriber1();
+		bus.register(subscriber);
+		subscriber.assertNoEvents();
+	}
+
+	public void testStickyEventReplacesProducer() {
+		final int[] calls = new int[1];
+		bus.register(new Object() {
+			@Produce
+			public Event1 getLastEvent() {
+				calls[0]++;
+				return new Event1("producer");
+			}
+		});
+
+		Event1 event = new Event1("sticky");
+		bus.postSticky(event);
+
+		Subscriber1 subscriber = new Subscriber1();
+		bus.register(subscriber);
+		subscriber.assertSameEvents(event);
+		assertEquals(0, calls[0]);
+	}
+
+	public void testMaxSize() {
+		bus.configureStickyEvents(1, false);
+
+		Event1 event1 = new Event1("sticky");
+		Event2 event2 = new Event2(2);
+		bus.postSticky(event1);
+		bus.postSticky(event2);
+
+		Subscriber2 subscriber = new Subscriber2();
+		bus.register(subscriber);
+		subscriber.assertSameEvents(event2);
+	}
+
+	public void testIllegalMaxSize() {
+		try {
+			bus.configureStickyEvents(0, false);
+			fail("exception expected");
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+	}
+
+	public void testNullStickyEvent() {
+		try {
+			bus.postSticky(null);
+			fail("exception expected");
+		} catch (NullPointerException e) {
+			// OK
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+package de.halfbit.tinybus.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import junit.framework.TestCase;
+import de.halfbit.tinybus.Produce;
+import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.mocks.Event1;
+import de.halfbit.tinybus.mocks.Event2;
+
+public class SubscriberHierarchyTest extends TestCase {
+
+	public static class BaseSubscriber {
+		final ArrayList<String> calls = new ArrayList<String>();
+		
+		@Subscribe
+		public void onEvent1(Event1 event) {
+			calls.add("base:event1");
+		}
+		
+		@Subscribe
+		void onEvent2(Event2 event) {
+			calls.add("base:event2");
+		}
+	}
+	
+	public static class PlainSubscriber extends BaseSubscriber {
+		public void doSomething() {}
+	}
+	
+	public static class OverridingSubscriber extends BaseSubscriber {
+		@Subscribe
+		@Override
+		public void onEvent1(Event1 event) {
+			calls.add("child:event1");
+		}
+	}
+	
+	public static class UnsubscribingSubscriber extends BaseSubscriber {
+		@Override
+		void onEvent2(Event2 event) {
+			calls.add("child:event2");
+		}
+	}
+	
+	public static class PrivateSubscriber {
+		final ArrayList<String> calls = new ArrayList<String>();
+		
+		@Subscribe
+		private void onEvent(Event1 event) {
+			calls.add("private:event1");
+		}
+	}
+	
+	public static class PrivateChildSubscriber extends PrivateSubscriber {
+		@Subscribe
+		protected void onEvent(Event2 event) {
+			calls.add("child:event2");
+		}
+	}
+	
+	public static class ProtectedProducer {
+		@Produce
+		protected Event2 getEvent() {
+			return new Event2(2);
+		}
+	}
+	
+	private TinyBus bus;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		bus = new TinyBus();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		bus = null;
+		super.tearDown();
+	}
+	
+	public void testInheritedSubscribers() {
+		PlainSubscriber subscriber = new PlainSubscriber();
+		bus.register(subscriber);
+		bus.post(new Event1("1"));
+		bus.post(new Event2(2));
+		
+		assertEquals(2, subscriber.calls.size());
+		assertEquals("base:event1", subscriber.calls.get(0));
+		assertEquals("base:event2", subscriber.calls.get(1));
+	}
+	
+	public void testSuperclassMetaReused() {
+		HashMap<Class<?>, ObjectsMeta> metas = new HashMap<Class<?>, ObjectsMeta>();
+		ObjectsMeta meta = ObjectsMeta.getObjectsMeta(PlainSubscriber.class, metas);
+		ObjectsMeta baseMeta = metas.get(BaseSubscriber.class);
+		
+		assertNotNull(baseMeta);
+		assertSame(baseMeta.getEventCallbacks(Event1.class), meta.getEventCallbacks(Event1.class));
+		assertSame(baseMeta.getEventCallbacks(Event2.class), meta.getEventCallbacks(Event2.class));
+		assertSame(meta, ObjectsMeta.getObjectsMeta(PlainSubscriber.class, metas));
+	}
+	
+	public void testOverriddenSubscriberCalledOnce() {
+		OverridingSubscriber subscriber = new OverridingSubscriber();
+		bus.register(subscriber);
+		bus.post(new Event1("1"));
+		
+		assertEquals(1, subscriber.calls.size());
+		assertEquals("child:event1", subscriber.calls.get(0));
+	}
+	
+	public void testOverridingWithoutAnnotationUnsubscribes() {
+		UnsubscribingSubscriber subscriber = new UnsubscribingSubscriber();
+		bus.register(subscriber);
+		bus.post(new Event2(2));
+		bus.post(new Event1("1"));
+		
+		assertEquals(1, subscriber.calls.size());
+		assertEquals("base:event1", subscriber.calls.get(0));
+	}
+	
+	public void testNonPublicMethods() {
+		PrivateChildSubscriber subscriber = new PrivateChildSubscriber();
+		bus.registerAll(new ProtectedProducer(), subscriber);
+		
+		// produced event is delivered on registration
+		assertEquals(1, subscriber.calls.size());
+		assertEquals("child:event2", subscriber.calls.get(0));
+		
+		bus.post(new Event1("1"));
+		assertEquals(2, subscriber.calls.size());
+		assertEquals("private:event1", subscriber.calls.get(1));
+	}
+	
+}
@@ -0,0 +1,159 @@
+package de.halfbit.tinybus.impl;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.mocks.Event1;
+import de.halfbit.tinybus.mocks.Event2;
+
+public class TimeSlicedProcessingTest extends InstrumentationTestCase {
+
+	private static final int EVENTS_NUMBER = 20;
+	private static final String LOOPER_MESSAGE = "looper message";
+	
+	private TinyBus bus;
+	private HandlerThread mainThread;
+	private Handler handler;
+	
+	private final ArrayList<Object> calls = new ArrayList<Object>();
+	private CountDownLatch latch;
+	
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		bus = null;
+		latch = new CountDownLatch(1);
+		
+		mainThread = new HandlerThread("tinybus-test-mainthread");
+		mainThread.start();
+		
+		handler = new Handler(mainThread.getLooper());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		mainThread.getLooper().quit();
+		mainThread = null;
+		bus = null;
+		calls.clear();
+		super.tearDown();
+	}
+	
+	private void onCall(Object call) {
+		synchronized (calls) {
+			calls.add(call);
+			if (calls.size() == EVENTS_NUMBER + 1) {
+				latch.countDown();
+			}
+		}
+	}
+	
+	private void postCascade(final long budgetMillis) throws InterruptedException {
+		final Object subscriber = new Object() {
+			
+			@Subscribe
+			public void onEvent(Event2 event) {
+				// queue events while processing
+				for (int i = 0; i < EVENTS_NUMBER; i++) {
+					bus.post(new Event1(String.valueOf(i)));
+				}
+				handler.post(new Runnable() {
+					@Override
+					public void run() {
+						onCall(LOOPER_MESSAGE);
+					}
+				});
+			}
+			
+			@Subscribe
+			public void onEvent(Event1 event) {
+				SystemClock.sleep(2);
+				onCall(event.value);
+			}
+		};
+		
+		handler.post(new Runnable() {
+			@Override
+			public void run() {
+				bus = new TinyBus().setProcessingBudget(budgetMillis);
+				bus.register(subscriber);
+				bus.post(new Event2(1));
+			}
+		});
+		
+		latch.await(3, TimeUnit.SECONDS);
+	}
+	
+	public void testYieldToLooper() throws InterruptedException {
+		postCascade(5);
+		
+		assertEquals(EVENTS_NUMBER + 1, calls.size());
+		assertTrue(bus.getProcessingYieldsCount() > 0);
+		
+		// looper message got processed before all events were delivered
+		int index = calls.indexOf(LOOPER_MESSAGE);
+		assertTrue(index > 0);
+		assertTrue(index < EVENTS_NUMBER);
+		
+		// events delivered in posting order
+		calls.remove(index);
+		for (int i = 0; i < EVENTS_NUMBER; i++) {
+			assertEquals(String.valueOf(i), calls.get(i));
+		}
+	}
+	
+	public void testNoBudget() throws InterruptedException {
+		postCascade(0);
+		
+		assertEquals(EVENTS_NUMBER + 1, calls.size());
+		assertEquals(0, bus.getProcessingYieldsCount());
+		assertEquals(LOOPER_MESSAGE, calls.get(EVENTS_NUMBER));
+	}
+	
+	public void testPostAfterYieldWithQueuedRegister() throws InterruptedException {
+		final Object lateSubscriber = new Object() {
+			@Subscribe
+			public void onEvent(Event1 event) {
+				onCall(event.value);
+				latch.countDown();
+			}
+		};
+		
+		final Object subscriber = new Object() {
+			@Subscribe
+			public void onEvent(Event2 event) {
+				// exceed the budget with a register task queued
+				bus.register(lateSubscriber);
+				SystemClock.sleep(10);
+			}
+		};
+		
+		handler.post(new Runnable() {
+			@Override
+			public void run() {
+				bus = new TinyBus().setProcessingBudget(1);
+				bus.register(subscriber);
+				bus.post(new Event2(1));
+				
+				// processing yielded before registering late subscriber
+				onCall(bus.hasRegistered(lateSubscriber));
+				
+				// queued register task must be processed before this event
+				bus.post(new Event1("event"));
+			}
+		});
+		
+		assertTrue(latch.await(3, TimeUnit.SECONDS));
+		assertTrue(bus.getProcessingYieldsCount() > 0);
+		assertEquals(Boolean.FALSE, calls.get(0));
+		assertEquals("event", calls.get(1));
+	}
+	
+}
@@ -23,6 +23,7 @@ import de.halfbit.tinybus.mocks.Event2;
 public class TinyBusPerformanceTest extends TestCase {
 
 	private static final int EVENTS_NUMBER = 10000;
+	private static final int SUBSCRIBERS_NUMBER = 100;
 	
 	private Bus mTinyBus;
 	private com.squareup.otto.Bus mOttoBus;
@@ -31,6 +32,7 @@ public class TinyBusPerformanceTest extends TestCase {
 	private Subsriber1 mSubscriber1;
 	private Subsriber2 mSubscriber2;
 	private Subsriber3 mSubscriber3;
+	private Subsriber2[] mSubscribers;
 	
 	private class Subsriber1 {
 		
@@ -68,6 +70,11 @@ public class TinyBusPerformanceTest extends TestCase {
 		mSubscriber1 = new Subsriber1();
 		mSubscriber2 = new Subsriber2();
 		mSubscriber3 = new Subsriber3();
+		
+		mSubscribers = new Subsriber2[SUBSCRIBERS_NUMBER];
+		for (int i=0; i<SUBSCRIBERS_NUMBER; i++) {
+			mSubscribers[i] = new Subsriber2();
+		}
 	}
 	
 	public void testA() {
@@ -204,6 +211,50 @@ public class TinyBusPerformanceTest extends TestCase {
 		mEventBus.unregister(mSubscriber1);
 	}	
 	
+	//-- post event to many subscribers
+	
+	public void testPostHundredStaticSubscribersTinyBus() {
+		Event1 event1 = new Event1("event");
+		
+		for (Subsriber2 subscriber : mSubscribers) {
+			mTinyBus.register(subscriber);
+		}
+		for (int i=0; i<EVENTS_NUMBER; i++) {
+			mTinyBus.post(event1);
+		}
+		for (Subsriber2 subscriber : mSubscribers) {
+			mTinyBus.unregister(subscriber);
+		}
+	}
+	
+	public void testPostHundredStaticSubscribersOtto() {
+		Event1 event1 = new Event1("event");
+		
+		for (Subsriber2 subscriber : mSubscribers) {
+			mOttoBus.register(subscriber);
+		}
+		for (int i=0; i<EVENTS_NUMBER; i++) {
+			mOttoBus.post(event1);
+		}
+		for (Subsriber2 subscriber : mSubscribers) {
+			mOttoBus.unregister(subscriber);
+		}
+	}
+	
+	public void testPostHundredStaticSubscribersEventBus() {
+		Event1 event1 = new Event1("event");
+		
+		for (Subsriber2 subscriber : mSubscribers) {
+			mEventBus.register(subscriber);
+		}
+		for (int i=0; i<EVENTS_NUMBER; i++) {
+			mEventBus.post(event1);
+		}
+		for (Subsriber2 subscriber : mSubscribers) {
+			mEventBus.unregister(subscriber);
+		}
+	}
+	
 	//-- register and unregister subscribers
 	
 	public void testRegisterThreeSubscribersTinyBus() {
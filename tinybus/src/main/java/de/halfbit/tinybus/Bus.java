@@ -62,6 +62,10 @@ package de.halfbit.tinybus;
  * will be called with the return value from the producer. Null values coming from producers
  * are <b>not</b> dispatched to subscribers.
  *
+ * <p>If several subscribers for the same type are registered while the bus is processing
+ * events (e.g. inside a subscriber method), the producer is called only once and its result
+ * is reused, unless an event of this type gets posted in between.
+ *
  * <p>This class is <b>not</b> safe for concurrent use. It must be called from a single thread.
  *
  * @author Cliff Biffle
@@ -70,6 +74,52 @@ package de.halfbit.tinybus;
  */
 public interface Bus {
 
+	/**
+	 * Registered objects implementing this interface get notified, when an event type 
+	 * gets its first subscriber or loses its last one. Producers can use it to start 
+	 * expensive work only when somebody is interested in their events. Callbacks are 
+	 * called in the main bus thread before produced events are dispatched to the new
+	 * subscriber.
+	 * 
+	 * <p>An object is not notified about changes caused by its own registration. Use 
+	 * {@link Bus#hasSubscribers(Class)} to check current state right after registration.
+	 * 
+	 * <p>Callbacks are called for the exact event types used by subscribers. With event
+	 * inheritance enabled, a subscriber of a supertype causes a callback for that 
+	 * supertype only, thus producers of subtypes should re-check demand with 
+	 * {@link Bus#hasSubscribers(Class)}.
+	 */
+	interface DemandCallbacks {
+		
+		/**
+		 * Called when first subscriber for given event type has been registered.
+		 * 
+		 * @param eventClass	event type which has subscribers now
+		 */
+		void onFirstSubscriber(Class<?> eventClass);
+		
+		/**
+		 * Called when last subscriber of given event type has been unregistered.
+		 * 
+		 * @param eventClass	event type which has no subscribers anymore
+		 */
+		void onLastSubscriberGone(Class<?> eventClass);
+	}
+
+	/**
+	 * Creates events on demand. Use it with {@link Bus#post(Class, EventFactory)} for
+	 * events, which are expensive to create.
+	 */
+	interface EventFactory<T> {
+		
+		/**
+		 * Creates new event to be posted.
+		 * 
+		 * @return	event instance or <code>null</code>, if nothing is to be posted
+		 */
+		T createEvent();
+	}
+
     /**
      * Registers all handler methods on {@code object} to receive events and producer methods to provide events.
      * <p>
@@ -84,6 +134,23 @@ public interface Bus {
      */
     void register(Object object);
 
+	/**
+	 * Registers given objects in a single step. This works like calling {@link #register(Object)}
+	 * for each object, but producer and sticky events are replayed only once after all objects
+	 * have been registered.
+	 * <p>
+	 * Events are replayed for each event type, which the given objects subscribe to or produce,
+	 * in the order of the objects. For every type a producer is called at most once. If
+	 * the producer is one of the given objects, its event is delivered to already registered
+	 * subscribers first. Then the sticky event of that type, or if there is none, the produced
+	 * event is delivered to the given subscribers in the order of the objects. Each subscriber
+	 * receives at most one event of each type.
+	 *
+	 * @param objects objects whose handler and producer methods should be registered.
+	 * @throws NullPointerException if any of the objects is null.
+	 */
+	void registerAll(Object... objects);
+
 	/**
 	 * Unregisters all producer and handler methods on a registered {@code object}.
 	 *
@@ -93,16 +160,39 @@ public interface Bus {
 	 */
 	void unregister(Object object);
 
+	/**
+	 * Unregisters given objects in a single step. 
+	 *
+	 * @param objects objects whose producer and handler methods should be unregistered.
+	 * @throws IllegalArgumentException if any of the objects was not previously registered.
+	 * @throws NullPointerException if any of the objects is null.
+	 */
+	void unregisterAll(Object... objects);
+
 	/**
 	 * Posts an event to all registered handlers. This method will return successfully after the event has been posted to
 	 * all handlers if there was no exceptions thrown by handlers. Exceptions in handlers are wrapper with a
 	 * RuntimeException and re-thrown.
+	 * <p>
+	 * If there are no subscribers for the event type at the time of posting, the event
+	 * is discarded immediately. This also applies to events posted from a background thread.
 	 *
 	 * @param event     event to post.
 	 * @throws NullPointerException if the event is null.
 	 */
 	void post(Object event);
 
+	/**
+	 * Posts an event created by given factory, but only if there is at least one subscriber
+	 * for given event type. Otherwise factory is not called and nothing gets posted. Factory
+	 * is called in the thread calling this method.
+	 *
+	 * @param eventClass    type of event to be posted.
+	 * @param factory       factory creating the event.
+	 * @throws NullPointerException if the event class or the factory is null.
+	 */
+	<T> void post(Class<T> eventClass, EventFactory<? extends T> factory);
+
 	/**
 	 * Checks whether given object is currently registered in the bus.
 	 * <p>In most cases, when you (un)register objects inside standard
@@ -117,6 +207,18 @@ public interface Bus {
 	 */
 	boolean hasRegistered(Object object);
 
+	/**
+	 * Checks whether there is at least one subscriber registered for given event type.
+	 * If the bus delivers events to subscribers of their supertypes, those subscribers
+	 * are taken into account too. This method can be called from any thread.
+	 *
+	 * @param eventClass	event type to check
+	 * @return			<code>true</code> if there are subscribers for given event type
+	 * 					or <code>false</code> otherwise
+	 * @throws NullPointerException if the event class is null.
+	 */
+	boolean hasSubscribers(Class<?> eventClass);
+
     /**
      * Causes the event to be posted to the bus after the specified amount of time elapses.
      * Only one event of same type can be delayed. If another event of same type is already
@@ -137,4 +239,24 @@ public interface Bus {
      * @param eventClass    event type of event to be cancelled
      */
 	void cancelDelayed(Class<?> eventClass);
+
+    /**
+     * Posts a sticky event to all registered handlers and keeps it in the bus. Only the latest
+     * sticky event of same type is kept. Subscribers registered later on will receive this event
+     * right after registration. If there is a producer for the same event type, then the sticky
+     * event is delivered instead and the producer is not called.
+     *
+     * @param event     event to post and to keep
+     * @throws NullPointerException if the event is null.
+     */
+    void postSticky(Object event);
+
+    /**
+     * Removes sticky event of given type from the bus. Subscribers registered after this call
+     * will not receive this event anymore.
+     *
+     * @param eventClass    event type of sticky event to be removed
+     * @throws NullPointerException if the event class is null.
+     */
+    void removeSticky(Class<?> eventClass);
 }
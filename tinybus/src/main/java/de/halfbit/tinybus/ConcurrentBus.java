@@ -0,0 +1,497 @@
+/*
+ * Copyright (C) 2014, 2015 Sergej Shafarenka, halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.tinybus;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import de.halfbit.tinybus.Subscribe.Mode;
+import de.halfbit.tinybus.impl.DispatchPlan;
+import de.halfbit.tinybus.impl.EventTable;
+import de.halfbit.tinybus.impl.ObjectsMeta;
+import de.halfbit.tinybus.impl.ObjectsMeta.ReceiversCallback;
+import de.halfbit.tinybus.impl.ObjectsMeta.SubscriberCallback;
+import de.halfbit.tinybus.impl.StickyEvents;
+import de.halfbit.tinybus.impl.Task;
+import de.halfbit.tinybus.impl.Task.TaskCallbacks;
+import de.halfbit.tinybus.impl.TinyBusDepot;
+
+/**
+ * Bus implementation, which can be used from any thread. Unlike
+ * {@link TinyBus}, objects can be registered and unregistered and
+ * events can be posted in any thread.
+ *
+ * <p>Posting does not acquire any locks. Every event type has an
+ * immutable list of subscribers, which is replaced by a new copy,
+ * when a subscriber of this type gets registered or unregistered.
+ * Registrations are serialized by a single lock.
+ *
+ * <p>Subscribers are called according to their mode.
+ * <code>Mode.Posting</code> subscribers are called in the posting thread.
+ * <code>Mode.Main</code> subscribers are called in main thread, directly
+ * if the event was posted in main thread, or through main thread's
+ * <code>Handler</code> otherwise. <code>Mode.Background</code> subscribers
+ * are called in background queues, which requires the bus to be created
+ * with a context. <code>Mode.Frame</code> and <code>Mode.Idle</code>
+ * subscribers are not supported. <code>@Produce</code> methods are not
+ * supported either, use sticky events instead.
+ *
+ * <p><b>Ordering guarantees</b>
+ * <ul>
+ * <li>Events posted by the same thread are delivered to a subscriber in
+ * posting order. Events posted by different threads have no defined order.</li>
+ * <li>An object registered in a thread receives all events posted after
+ * <code>register()</code> returned, in any thread.</li>
+ * <li>An object unregistered in a thread does not receive events posted
+ * after <code>unregister()</code> returned, in any thread. Events posted
+ * concurrently with registration or unregistration may or may not be
+ * delivered. <code>Mode.Main</code> subscribers unregistered in main thread
+ * receive no events at all after unregistration.</li>
+ * <li>{@link DemandCallbacks} are called in the thread registering or
+ * unregistering a subscriber, after the bus is unlocked, thus they can 
+ * block or register objects themselves. Callbacks of a single 
+ * <code>register()</code> or <code>unregister()</code> call are made in 
+ * order of changes. Callbacks of concurrent calls may interleave, thus use
+ * {@link #hasSubscribers(Class)} to check actual state.</li>
+ * <li><code>registerAll()</code> registers either all given objects or, 
+ * if one of them cannot be registered, none of them.</li>
+ * </ul>
+ *
+ * @author sergej
+ */
+public class ConcurrentBus implements Bus {
+
+	// guarded by mLock, serializes all changes of subscribers
+	private final Object mLock = new Object();
+	private final HashMap<Class<?>, ObjectsMeta> mObjectsMetas
+		= new HashMap<Class<?>, ObjectsMeta>();
+	private final EventTable<HashSet<Object>> mEventSubscribers
+		= new EventTable<HashSet<Object>>();
+
+	// immutable plans replaced on every change, read without locking
+	private final ConcurrentHashMap<Class<?>, DispatchPlan> mDispatchPlans
+		= new ConcurrentHashMap<Class<?>, DispatchPlan>();
+
+	private final CopyOnWriteArrayList<DemandCallbacks> mDemandCallbacks
+		= new CopyOnWriteArrayList<DemandCallbacks>();
+	private final ConcurrentHashMap<Class<?>, Runnable> mDelayedEvents
+		= new ConcurrentHashMap<Class<?>, Runnable>();
+	private final StickyEvents mStickyEvents = new StickyEvents();
+
+	private final Context mContext;
+	private final Handler mMainHandler;
+	private final ConcurrentBusImpl mImpl;
+
+	//-- public api
+
+	public ConcurrentBus() {
+		this(null);
+	}
+
+	/**
+	 * Creates new bus instance. Context is required for delivering events
+	 * to <code>Mode.Background</code> subscribers.
+	 *
+	 * @param context	context or <code>null</code>
+	 */
+	public ConcurrentBus(Context context) {
+		mContext = context == null ? null : context.getApplicationContext();
+		mMainHandler = new Handler(Looper.getMainLooper());
+		mImpl = new ConcurrentBusImpl();
+	}
+
+	@Override
+	public void register(Object obj) {
+		assertObject(obj);
+		registerAll(obj);
+	}
+
+	@Override
+	public void registerAll(Object... objs) {
+		assertObjects(objs);
+
+		final ObjectsMeta[] metas = new ObjectsMeta[objs.length];
+		final DemandChanges changes = new DemandChanges();
+		synchronized (mLock) {
+			int registered = 0;
+			try {
+				ObjectsMeta meta;
+				for (; registered < objs.length; registered++) {
+					meta = getObjectsMeta(objs[registered]);
+					try {
+						meta.registerAtReceivers(objs[registered], mEventSubscribers, changes);
+					} finally {
+						meta.rebuildDispatchPlans(mEventSubscribers, mObjectsMetas, mDispatchPlans);
+					}
+					metas[registered] = meta;
+				}
+			} catch (RuntimeException e) {
+				// roll back already registered objects, demand has not changed then
+				for (int i = 0; i < registered; i++) {
+					try {
+						metas[i].unregisterFromReceivers(objs[i], mEventSubscribers, changes);
+					} finally {
+						metas[i].rebuildDispatchPlans(mEventSubscribers, mObjectsMetas, mDispatchPlans);
+					}
+				}
+				throw e;
+			}
+			for (Object obj : objs) {
+				if (obj instanceof DemandCallbacks) {
+					mDemandCallbacks.add((DemandCallbacks) obj);
+				}
+			}
+		}
+		changes.notifyCallbacks(mDemandCallbacks);
+
+		// replay sticky events outside of the lock
+		final LinkedHashSet<Class<?>> eventClasses = new LinkedHashSet<Class<?>>();
+		SubscriberCallback[] callbacks;
+		Object event;
+		for (int i = 0; i < objs.length; i++) {
+			eventClasses.clear();
+			metas[i].collectEventClasses(eventClasses);
+			for (Class<?> eventClass : eventClasses) {
+				event = mStickyEvents.get(eventClass);
+				if (event != null) {
+					callbacks = metas[i].getEventCallbacks(eventClass);
+					if (callbacks != null) {
+						for (SubscriberCallback callback : callbacks) {
+							dispatchEvent(callback, objs[i], event);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void unregister(Object obj) {
+		assertObject(obj);
+		unregisterAll(obj);
+	}
+
+	@Override
+	public void unregisterAll(Object... objs) {
+		assertObjects(objs);
+
+		final DemandChanges changes = new DemandChanges();
+		synchronized (mLock) {
+			ObjectsMeta meta;
+			for (Object obj : objs) {
+				meta = mObjectsMetas.get(obj.getClass());
+				if (meta == null) {
+					throw new IllegalArgumentException(
+							"Unregistering object which was not registered before: " + obj);
+				}
+				if (obj instanceof DemandCallbacks) {
+					mDemandCallbacks.remove(obj);
+				}
+				try {
+					meta.unregisterFromReceivers(obj, mEventSubscribers, changes);
+				} finally {
+					meta.rebuildDispatchPlans(mEventSubscribers, mObjectsMetas, mDispatchPlans);
+				}
+			}
+		}
+		changes.notifyCallbacks(mDemandCallbacks);
+	}
+
+	@Override
+	public boolean hasRegistered(Object obj) {
+		assertObject(obj);
+		synchronized (mLock) {
+			ObjectsMeta meta = mObjectsMetas.get(obj.getClass());
+			return meta != null && meta.hasRegisteredObject(obj, mEventSubscribers, null);
+		}
+	}
+
+	@Override
+	public boolean hasSubscribers(Class<?> eventClass) {
+		if (eventClass == null) {
+			throw new NullPointerException("Event class must not be null");
+		}
+		return mDispatchPlans.containsKey(eventClass);
+	}
+
+	@Override
+	public void post(Object event) {
+		if (event == null) {
+			throw new NullPointerException("Event must not be null");
+		}
+		final DispatchPlan plan = mDispatchPlans.get(event.getClass());
+		if (plan == null) {
+			return; // nobody is interested in this event
+		}
+
+		int size = plan.backgroundReceivers.length;
+		for (int i = 0; i < size; i++) {
+			dispatchEventToBackground(plan.backgroundCallbacks[i], plan.backgroundReceivers[i], event);
+		}
+
+		size = plan.postingReceivers.length;
+		try {
+			for (int i = 0; i < size; i++) {
+				plan.postingCallbacks[i].method.invoke(plan.postingReceivers[i], event);
+			}
+		} catch (Exception e) {
+			throw TinyBus.handleExceptionOnEventDispatch(e);
+		}
+
+		if (plan.mainReceivers.length > 0) {
+			dispatchEventToMain(null, event);
+		}
+	}
+
+	@Override
+	public <T> void post(Class<T> eventClass, EventFactory<? extends T> factory) {
+		if (eventClass == null) {
+			throw new NullPointerException("Event class must not be null");
+		}
+		if (factory == null) {
+			throw new NullPointerException("Event factory must not be null");
+		}
+		if (!mDispatchPlans.containsKey(eventClass)) {
+			return; // no need to create the event
+		}
+		T event = factory.createEvent();
+		if (event != null) {
+			post(event);
+		}
+	}
+
+	@Override
+	public void postDelayed(final Object event, long delayMillis) {
+		if (event == null) {
+			throw new NullPointerException("Event must not be null");
+		}
+		final Class<?> eventClass = event.getClass();
+		final Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				if (mDelayedEvents.remove(eventClass, this)) {
+					post(event);
+				} // otherwise cancelled or replaced meanwhile
+			}
+		};
+		final Runnable replaced = mDelayedEvents.put(eventClass, task);
+		if (replaced != null) {
+			mMainHandler.removeCallbacks(replaced);
+		}
+		mMainHandler.postDelayed(task, delayMillis);
+	}
+
+	@Override
+	public void cancelDelayed(Class<?> eventClass) {
+		if (eventClass == null) {
+			throw new NullPointerException("Event class must not be null");
+		}
+		final Runnable task = mDelayedEvents.remove(eventClass);
+		if (task != null) {
+			mMainHandler.removeCallbacks(task);
+		}
+	}
+
+	@Override
+	public void postSticky(Object event) {
+		if (event == null) {
+			throw new NullPointerException("Event must not be null");
+		}
+		mStickyEvents.put(event);
+		post(event);
+	}
+
+	@Override
+	public void removeSticky(Class<?> eventClass) {
+		if (eventClass == null) {
+			throw new NullPointerException("Event class must not be null");
+		}
+		mStickyEvents.remove(eventClass);
+	}
+
+	//-- implementation
+
+	private static void assertObject(Object obj) {
+		if (obj == null) {
+			throw new NullPointerException("Object must not be null");
+		}
+	}
+
+	private static void assertObjects(Object[] objs) {
+		assertObject(objs);
+		for (Object obj : objs) {
+			assertObject(obj);
+		}
+	}
+
+	private ObjectsMeta getObjectsMeta(Object obj) {
+		// metas of superclasses get cached too, thus every meta is checked
+		final ObjectsMeta meta = ObjectsMeta.getObjectsMeta(obj.getClass(), mObjectsMetas);
+		if (meta.hasProducers()) {
+			throw new IllegalArgumentException("@Produce methods are not supported by "
+					+ "ConcurrentBus, use sticky events instead. Class: " + obj.getClass());
+		}
+		if (meta.hasSubscribersInMode(Mode.Frame) || meta.hasSubscribersInMode(Mode.Idle)) {
+			throw new IllegalArgumentException("Mode.Frame and Mode.Idle subscribers are "
+					+ "not supported by ConcurrentBus. Class: " + obj.getClass());
+		}
+		return meta;
+	}
+
+	private void dispatchEvent(SubscriberCallback callback, Object receiver, Object event) {
+		switch (callback.mode) {
+			case Mode.Background:
+				dispatchEventToBackground(callback, receiver, event);
+				break;
+
+			case Mode.Posting:
+				try {
+					callback.method.invoke(receiver, event);
+				} catch (Exception e) {
+					throw TinyBus.handleExceptionOnEventDispatch(e);
+				}
+				break;
+
+			default:
+				dispatchEventToMain(receiver, event);
+		}
+	}
+
+	/**
+	 * Calls main thread subscribers of the event. Subscribers are taken
+	 * from the actual plan at the time of delivery, thus subscribers
+	 * unregistered in main thread do not receive events anymore.
+	 *
+	 * @param receiver	receiver to deliver the event to, or <code>null</code>
+	 * 					to deliver it to all main thread subscribers
+	 */
+	private void deliverInMainThread(Object receiver, Object event) {
+		final DispatchPlan plan = mDispatchPlans.get(event.getClass());
+		if (plan == null) {
+			return; // all subscribers are gone meanwhile
+		}
+		final int size = plan.mainReceivers.length;
+		try {
+			for (int i = 0; i < size; i++) {
+				if (receiver == null || receiver == plan.mainReceivers[i]) {
+					plan.mainCallbacks[i].method.invoke(plan.mainReceivers[i], event);
+				}
+			}
+		} catch (Exception e) {
+			throw TinyBus.handleExceptionOnEventDispatch(e);
+		}
+	}
+
+	private void dispatchEventToMain(final Object receiver, final Object event) {
+		if (Looper.getMainLooper().getThread() == Thread.currentThread()) {
+			deliverInMainThread(receiver, event);
+		} else {
+			mMainHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					deliverInMainThread(receiver, event);
+				}
+			});
+		}
+	}
+
+	private void dispatchEventToBackground(SubscriberCallback callback,
+			Object receiver, Object event) {
+		if (mContext == null) {
+			throw new IllegalStateException(
+					"You must create bus with ConcurrentBus(Context) constructor to use Mode.Background.");
+		}
+		Task task = Task.obtainTask(this, Task.CODE_DISPATCH_TO_BACKGROUND, event)
+				.setTaskCallbacks(mImpl);
+		task.subscriberCallback = callback;
+		task.receiverRef = new WeakReference<Object>(receiver);
+		TinyBusDepot.get(mContext).getDispatcher().dispatchEventToBackground(task);
+	}
+
+	//-- inner implementation of callbacks
+
+	/** 
+	 * Collects demand changes made while the bus is locked. Callbacks are 
+	 * notified after the lock is released, thus user code never runs locked.
+	 */
+	static class DemandChanges implements ReceiversCallback {
+
+		private ArrayList<Class<?>> mEventClasses;
+		private ArrayList<Boolean> mFirstReceivers;
+
+		@Override
+		public void onFirstReceiver(Class<?> eventClass) {
+			add(eventClass, true);
+		}
+
+		@Override
+		public void onLastReceiverGone(Class<?> eventClass) {
+			add(eventClass, false);
+		}
+
+		private void add(Class<?> eventClass, boolean firstReceiver) {
+			if (mEventClasses == null) {
+				mEventClasses = new ArrayList<Class<?>>();
+				mFirstReceivers = new ArrayList<Boolean>();
+			}
+			mEventClasses.add(eventClass);
+			mFirstReceivers.add(firstReceiver);
+		}
+
+		void notifyCallbacks(CopyOnWriteArrayList<DemandCallbacks> demandCallbacks) {
+			if (mEventClasses == null || demandCallbacks.isEmpty()) {
+				return;
+			}
+			final int size = mEventClasses.size();
+			for (int i = 0; i < size; i++) {
+				for (DemandCallbacks callbacks : demandCallbacks) {
+					if (mFirstReceivers.get(i)) {
+						callbacks.onFirstSubscriber(mEventClasses.get(i));
+					} else {
+						callbacks.onLastSubscriberGone(mEventClasses.get(i));
+					}
+				}
+			}
+		}
+	}
+
+	class ConcurrentBusImpl implements TaskCallbacks {
+
+		@Override
+		public void onDispatchInBackground(Task task) throws Exception {
+			task.dispatchToReceiver();
+		}
+
+		@Override
+		public void onPostFromBackground(Task task) {
+			throw new IllegalStateException("unexpected task code: " + task.code);
+		}
+
+		@Override
+		public void onPostDelayed(Task task) {
+			throw new IllegalStateException("unexpected task code: " + task.code);
+		}
+	}
+
+}
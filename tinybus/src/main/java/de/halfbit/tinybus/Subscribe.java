@@ -34,7 +34,9 @@ import java.lang.annotation.Target;
  * 
  * <p><b>Background mode</b>
  * <p>If subscriber's <code>mode</code> is <code>Mode.Background</code>
- * then subscriber will be called in a background thread. 
+ * then subscriber will be called in a background thread. Events posted 
+ * in a background thread are handed over to such subscribers directly, 
+ * without going through main thread.
  * 
  * <p>For subscriber notified in background you can also specify a 
  * <code>queue</code> name. All subscribers with the same 
@@ -52,6 +54,48 @@ import java.lang.annotation.Target;
  * <p>If <code>queue</code> is not specified, then default "global"
  * queue is used.
  *
+ * <p><b>Frame mode</b>
+ * <p>If subscriber's <code>mode</code> is <code>Mode.Frame</code>, then 
+ * this subscriber will be called in main bus thread at most once per 
+ * frame. If several events of the same type are posted within a frame, 
+ * subscriber receives only the latest one. Use this mode for events 
+ * updating UI, like progress updates. Produced and sticky events are 
+ * delivered to such subscriber immediately on registration. Frames are
+ * scheduled as configured by {@link TinyBus#setFrameScheduler(TinyBus.FrameScheduler)}.
+ * If the bus was created in a thread without <code>Looper</code> and no 
+ * scheduler is set, then such subscribers are called once all queued 
+ * tasks are processed.
+ *
+ * <p><b>Idle mode</b>
+ * <p>If subscriber's <code>mode</code> is <code>Mode.Idle</code>, then 
+ * this subscriber will be called in main bus thread, when the thread has 
+ * no other messages to process, but not later than configured by
+ * {@link TinyBus#setMaxIdleDeferral(long)}. Every posted event is delivered 
+ * in posting order. Use this mode for low priority work like cache warming. 
+ * Produced and sticky events are delivered on registration immediately.
+ * If the bus was created in a thread without <code>Looper</code>, then 
+ * such subscribers are called once all queued tasks are processed.
+ *
+ * <p><b>Posting mode</b>
+ * <p>If subscriber's <code>mode</code> is <code>Mode.Posting</code>, then 
+ * this subscriber will be called synchronously in the thread, which posts 
+ * the event. Events posted from a background thread are not sent to main 
+ * thread, unless there are subscribers called in main thread for them. Such
+ * subscriber must be thread-safe. Because registration is processed in 
+ * main thread, it can still receive an event posted in another thread 
+ * shortly after it was unregistered.
+ *
+ * <p><b>Priority</b>
+ * <p>Subscribers with higher <code>priority</code> are called before 
+ * subscribers with lower priority of the same mode. If event inheritance 
+ * is enabled, this applies across event types too: a supertype subscriber 
+ * with higher priority is called before subscribers of the exact event 
+ * class. Among subscribers of equal priority, those of the exact event 
+ * class are called before those of its supertypes, otherwise their order 
+ * is undefined. Default priority is 0. A main thread subscriber can stop 
+ * further delivery of the event by calling
+ * {@link TinyBus#cancelEventDelivery(Object)}.
+ *
  * @author Cliff Biffle
  * @author Sergej Shafarenka
  */
@@ -62,9 +106,13 @@ public @interface Subscribe {
 	public static final class Mode {
 		public static final int Main = 0;
 		public static final int Background = 1;
+		public static final int Frame = 2;
+		public static final int Idle = 3;
+		public static final int Posting = 4;
 	}	
 	
 	int mode() default Mode.Main;
 	String queue() default "global";
+	int priority() default 0;
 	
 }
\ No newline at end of file
@@ -17,25 +17,41 @@ package de.halfbit.tinybus;
 
 import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import android.app.Application;
 import android.app.Service;
 import android.content.Context;
+import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Message;
+import android.os.MessageQueue;
+import android.os.MessageQueue.IdleHandler;
 import android.util.Log;
 import de.halfbit.tinybus.Subscribe.Mode;
+import de.halfbit.tinybus.impl.DispatchPlan;
+import de.halfbit.tinybus.impl.EventIds;
+import de.halfbit.tinybus.impl.EventTable;
+import de.halfbit.tinybus.impl.EventTypes;
 import de.halfbit.tinybus.impl.ObjectsMeta;
+import de.halfbit.tinybus.impl.StickyEvents;
 import de.halfbit.tinybus.impl.Task;
 import de.halfbit.tinybus.impl.TaskQueue;
 import de.halfbit.tinybus.impl.TinyBusDepot;
 import de.halfbit.tinybus.impl.ObjectsMeta.SubscriberCallback;
 import de.halfbit.tinybus.impl.ObjectsMeta.EventDispatchCallback;
+import de.halfbit.tinybus.impl.ObjectsMeta.ReceiversCallback;
 import de.halfbit.tinybus.impl.Task.TaskCallbacks;
 import de.halfbit.tinybus.impl.TinyBusDepot.LifecycleCallbacks;
 
@@ -94,6 +110,24 @@ public class TinyBus implements Bus {
 		}
 	}
 	
+	/**
+	 * Schedules delivery of events to subscribers having 
+	 * <code>Subscribe.Mode.Frame</code> mode. Default scheduler posts given 
+	 * task to the main thread's <code>Handler</code>. Extensions provide a 
+	 * scheduler aligned with <code>Choreographer</code> frames.
+	 * 
+	 * @see TinyBus#setFrameScheduler(FrameScheduler)
+	 * @author sergej
+	 */
+	public interface FrameScheduler {
+		
+		/** 
+		 * Runs given task in main thread once, when next frame starts. 
+		 * This method is called in main thread. 
+		 */
+		void scheduleFrame(Runnable task);
+	}
+	
 	/**
 	 * Use this method to get a bus instance bound to the given context.
 	 * If instance does not yet exist in the context, a new instance 
@@ -131,28 +165,76 @@ public class TinyBus implements Bus {
 	
 	private static final String TAG = "tinybus";
 	
+	public static final long DEFAULT_MAX_IDLE_DEFERRAL_MILLIS = 1000;
+	
 	// subscribers and producers methods for a class
 	private static final HashMap<Class<?>, ObjectsMeta> OBJECTS_METAS 
 		= new HashMap<Class<?>, ObjectsMeta>();
 	
-	// subscribers for certain event type
-	private final HashMap<Class<?>, HashSet<Object>> mEventSubscribers
-		= new HashMap<Class<?>, HashSet<Object>>();
+	// subscribers for certain event type, indexed by event class id
+	private final EventTable<HashSet<Object>> mEventSubscribers
+		= new EventTable<HashSet<Object>>();
+	
+	// producers for certain event type, indexed by event class id
+	private final EventTable<Object> mEventProducers 
+		= new EventTable<Object>(); 
+	
+	// event types having at least one subscriber, accessed from different threads
+	private final Set<Class<?>> mSubscribedEventClasses
+		= Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
 	
-	// producers for certain event type
-	private final HashMap<Class<?>, Object> mEventProducers 
-		= new HashMap<Class<?>, Object>(); 
+	// compiled receivers for certain event type, indexed by event class id
+	private final EventTable<DispatchPlan> mDispatchPlans
+		= new EventTable<DispatchPlan>();
+	
+	// plans of event types having posting thread or background subscribers, read from any thread
+	private final ConcurrentHashMap<Class<?>, DispatchPlan> mWorkerPlans
+		= new ConcurrentHashMap<Class<?>, DispatchPlan>();
+	
+	// events returned by producers during current processing pass
+	private final HashMap<Class<?>, Object> mProducedEvents
+		= new HashMap<Class<?>, Object>();
+	
+	// latest sticky events
+	private final StickyEvents mStickyEvents = new StickyEvents();
+	
+	// latest events waiting for next frame, accessed in main thread only
+	private LinkedHashMap<Class<?>, Object> mFrameEvents;
+	private FrameScheduler mFrameScheduler;
+	private boolean mFrameScheduled;
+	
+	// events waiting for main thread to become idle, accessed in main thread only
+	private ArrayList<Object> mIdleEvents;
+	private boolean mIdleScheduled;
+	private long mMaxIdleDeferralMillis = DEFAULT_MAX_IDLE_DEFERRAL_MILLIS;
 	
 	// context
 	private final TinyBusImpl mImpl;
 	private final Handler mMainHandler;
+	private final MessageQueue mMainQueue;
 	private final Thread mMainThread;
 
 	// state
 	final TaskQueue mTaskQueue;
 	boolean mProcessing;
 	
+	// optional time budget of a single processing pass
+	private long mProcessingBudgetNanos;
+	private boolean mContinuationScheduled;
+	private int mProcessingYieldsCount;
+	
+	// post to main thread using asynchronous messages
+	private volatile boolean mAsyncMessages;
+	
+	// deliver events to subscribers of their supertypes
+	private volatile boolean mEventInheritance;
+	
+	// event being delivered to main thread subscribers, accessed in main thread only
+	private Object mDeliveredEvent;
+	private boolean mDeliveryCanceled;
+	
 	ArrayList<Wireable> mWireables;
+	ArrayList<DemandCallbacks> mDemandCallbacks;
 	
 	//-- public api
 
@@ -169,6 +251,7 @@ public class TinyBus implements Bus {
 		
 		final Looper looper = Looper.myLooper();
 		mMainHandler = looper == null ? null : new Handler(looper);
+		mMainQueue = looper == null ? null : Looper.myQueue();
 	}
 	
 	@Override
@@ -185,6 +268,20 @@ public class TinyBus implements Bus {
 		if (!mProcessing) processQueue();
 	}
 
+	@Override
+	public void registerAll(Object... objs) {
+		assertObjectsAndWorkerThread(objs);
+		mTaskQueue.offer(Task.obtainTask(this, Task.CODE_REGISTER_ALL, objs.clone()));
+		if (!mProcessing) processQueue();
+	}
+	
+	@Override
+	public void unregisterAll(Object... objs) {
+		assertObjectsAndWorkerThread(objs);
+		mTaskQueue.offer(Task.obtainTask(this, Task.CODE_UNREGISTER_ALL, objs.clone()));
+		if (!mProcessing) processQueue();
+	}
+	
 	@Override
 	public boolean hasRegistered(Object obj) {
 		assertObjectAndWorkerThread(obj);
@@ -192,27 +289,185 @@ public class TinyBus implements Bus {
 		return meta != null && meta.hasRegisteredObject(obj, mEventSubscribers, mEventProducers);
 	}
 	
+	@Override
+	public boolean hasSubscribers(Class<?> eventClass) {
+		if (eventClass == null) {
+			throw new NullPointerException("Event class must not be null");
+		}
+		return hasSubscribedTypes(eventClass);
+	}
+	
 	@Override
 	public void post(Object event) {
 		if (event == null) {
 			throw new NullPointerException("Event must not be null");
 		}
-		
+		if (mMainThread == Thread.currentThread() && !mEventInheritance) {
+			postInMainThread(event);
+			return;
+		}
+		if (hasNoReceivers(event.getClass())) {
+			return; // nobody is interested in this event
+		}
+		postTask(Task.CODE_POST, Task.CODE_DISPATCH_FROM_BACKGROUND, event);
+	}
+	
+	/** 
+	 * Posts event in main thread resolving id of its class only once. The 
+	 * id is used for checking receivers and for finding the dispatch plan.
+	 */
+	private void postInMainThread(Object event) {
+		final int eventId = EventIds.findId(event.getClass());
+		if (!mProcessing && mTaskQueue.isEmpty()) {
+			// queued tasks might register new subscribers, even if processing
+			// has yielded to the looper or has been aborted by an exception
+			final HashSet<Object> receivers = eventId == -1 ? null : mEventSubscribers.get(eventId);
+			if (receivers == null || receivers.isEmpty()) {
+				return; // nobody is interested in this event
+			}
+		}
+		final Task task = Task.obtainTask(this, Task.CODE_POST, event);
+		task.eventId = eventId;
+		mTaskQueue.offer(task);
+		if (!mProcessing) processQueue();
+	}
+	
+	@Override
+	public <T> void post(Class<T> eventClass, EventFactory<? extends T> factory) {
+		if (eventClass == null) {
+			throw new NullPointerException("Event class must not be null");
+		}
+		if (factory == null) {
+			throw new NullPointerException("Event factory must not be null");
+		}
+		if (hasNoReceivers(eventClass)) {
+			return; // no need to create the event
+		}
+		T event = factory.createEvent();
+		if (event != null) {
+			postTask(Task.CODE_POST, Task.CODE_DISPATCH_FROM_BACKGROUND, event);
+		}
+	}
+	
+	private boolean hasNoReceivers(Class<?> eventClass) {
+		// When processing or when tasks are still queued after a yield, queued 
+		// tasks might register new subscribers, thus we have to go the long way then.
+		return !hasSubscribedTypes(eventClass)
+				&& (mMainThread != Thread.currentThread() 
+						|| (!mProcessing && mTaskQueue.isEmpty()));
+	}
+	
+	private boolean hasSubscribedTypes(Class<?> eventClass) {
+		if (!mEventInheritance) {
+			return mSubscribedEventClasses.contains(eventClass);
+		}
+		for (Class<?> eventType : EventTypes.getTypes(eventClass)) {
+			if (mSubscribedEventClasses.contains(eventType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private void postTask(int mainCode, int backgroundCode, Object event) {
 		if (mMainThread == Thread.currentThread()) {
 			// this is main thread
-			Task task = Task.obtainTask(this, Task.CODE_POST, event);
+			Task task = Task.obtainTask(this, mainCode, event);
 			mTaskQueue.offer(task);
 			if (!mProcessing) processQueue();
 			
 		} else { 
 			// this is a background thread
 			
+			if (mEventInheritance) {
+				final boolean mainThreadReceivers = dispatchTypesInWorkerThread(event);
+				if (mainCode == Task.CODE_POST && !mainThreadReceivers) {
+					return; // nothing to do in main thread
+				}
+				
+			} else {
+				final DispatchPlan plan = mWorkerPlans.get(event.getClass());
+				if (plan != null) {
+					dispatchInWorkerThread(plan, event);
+					if (mainCode == Task.CODE_POST && !plan.hasMainThreadReceivers()) {
+						return; // nothing to do in main thread
+					}
+				}
+			}
+			
 			if (mMainThread.isAlive()) {
-				Task task = Task.obtainTask(this, Task.CODE_DISPATCH_FROM_BACKGROUND, event)
+				Task task = Task.obtainTask(this, backgroundCode, event)
 						.setTaskCallbacks(mImpl);
-				getMainHandlerNotNull().post(task);
+				postToMainThread(getMainHandlerNotNull(), task, 0);
+			}
+		}
+	}
+	
+	private void dispatchInWorkerThread(DispatchPlan plan, Object event) {
+		// background subscribers go straight to dispatcher, not through main thread
+		int size = plan.backgroundReceivers.length;
+		for (int i = 0; i < size; i++) {
+			mImpl.dispatchEventToBackground(
+					plan.backgroundCallbacks[i], plan.backgroundReceivers[i], event);
+		}
+		
+		size = plan.postingReceivers.length;
+		try {
+			for (int i = 0; i < size; i++) {
+				plan.postingCallbacks[i].method.invoke(plan.postingReceivers[i], event);
+			}
+		} catch (Exception e) {
+			throw handleExceptionOnEventDispatch(e);
+		}
+	}
+	
+	/** 
+	 * Dispatches event to worker receivers of all its types and returns 
+	 * <code>true</code>, if some of those types have main thread receivers.
+	 */
+	private boolean dispatchTypesInWorkerThread(Object event) {
+		boolean mainThreadReceivers = false;
+		DispatchPlan plan;
+		for (Class<?> eventType : EventTypes.getTypes(event.getClass())) {
+			if (mSubscribedEventClasses.contains(eventType)) {
+				plan = mWorkerPlans.get(eventType);
+				if (plan == null) {
+					mainThreadReceivers = true;
+				} else {
+					dispatchInWorkerThread(plan, event);
+					mainThreadReceivers |= plan.hasMainThreadReceivers();
+				}
 			}
 		}
+		return mainThreadReceivers;
+	}
+	
+	void postToMainThread(Handler handler, Runnable task, long delayMillis) {
+		if (mAsyncMessages && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP_MR1) {
+			Message message = Message.obtain(handler, task);
+			message.setAsynchronous(true);
+			handler.sendMessageDelayed(message, delayMillis);
+		} else {
+			handler.postDelayed(task, delayMillis);
+		}
+	}
+	
+	/**
+	 * Makes events posted from background threads and delayed events to 
+	 * be sent to main thread as asynchronous messages. Such messages are
+	 * not blocked by synchronization barriers, which are set by the view 
+	 * hierarchy during layout and drawing, thus they are delivered up to
+	 * a frame earlier. Order of events posted by the bus is preserved, 
+	 * but they can overtake synchronous messages posted by other 
+	 * components. Asynchronous messages are used on Android 5.1 (API 22) 
+	 * and above. Default value is <code>false</code>.
+	 * 
+	 * @param async		<code>true</code> to use asynchronous messages
+	 * @return			this bus instance
+	 */
+	public TinyBus setAsynchronousMessages(boolean async) {
+		mAsyncMessages = async;
+		return this;
 	}
 	
 	private Handler getMainHandlerNotNull() {
@@ -246,6 +501,235 @@ public class TinyBus implements Bus {
 		mImpl.cancelDelayed(eventClass, getMainHandlerNotNull());
 	}
 	
+	//-- sticky events
+	
+	@Override
+	public void postSticky(Object event) {
+		if (event == null) {
+			throw new NullPointerException("Event must not be null");
+		}
+		postTask(Task.CODE_POST_STICKY, Task.CODE_DISPATCH_STICKY_FROM_BACKGROUND, event);
+	}
+	
+	@Override
+	public void removeSticky(Class<?> eventClass) {
+		if (eventClass == null) {
+			throw new NullPointerException("Event class must not be null");
+		}
+		mStickyEvents.remove(eventClass);
+	}
+	
+	/**
+	 * Configures the cache keeping sticky events. Already cached sticky
+	 * events get removed by this call.
+	 * 
+	 * @param maxSize		maximum number of sticky events to keep. If the 
+	 * 						limit is exceeded, least recently used events 
+	 * 						are removed first.
+	 * @param weakValues	<code>true</code> to keep weak references to sticky 
+	 * 						events, or <code>false</code> to keep strong ones
+	 * @return				this bus instance
+	 */
+	public TinyBus configureStickyEvents(int maxSize, boolean weakValues) {
+		mStickyEvents.configure(maxSize, weakValues);
+		return this;
+	}
+	
+	//-- event cancellation
+	
+	/**
+	 * Stops delivery of the event to remaining subscribers. This method can
+	 * only be called by a <code>Mode.Main</code> subscriber while it handles
+	 * the event. Main thread subscribers with lower priority do not receive 
+	 * the event. Neither do <code>Mode.Background</code>, <code>Mode.Frame</code>
+	 * and <code>Mode.Idle</code> subscribers, unless the event was posted in 
+	 * a background thread, in which case background subscribers have already 
+	 * received it. <code>Mode.Posting</code> subscribers are always called 
+	 * before main thread subscribers, thus they cannot be skipped.
+	 * 
+	 * <p>The method can also be called by a subscriber receiving a sticky or 
+	 * produced event on registration. Such events are not posted, thus 
+	 * the call has no effect then.
+	 * 
+	 * @param event		event delivered to the calling subscriber
+	 */
+	public void cancelEventDelivery(Object event) {
+		assertObjectAndWorkerThread(event);
+		if (mDeliveredEvent == null) {
+			throw new IllegalStateException("Event delivery can only be canceled "
+					+ "by a Mode.Main subscriber handling the event.");
+		}
+		if (mDeliveredEvent != event) {
+			throw new IllegalArgumentException("Only the event being delivered can be "
+					+ "canceled. Delivered: " + mDeliveredEvent + ", canceled: " + event);
+		}
+		mDeliveryCanceled = true;
+	}
+	
+	//-- event inheritance
+	
+	/**
+	 * Enables delivery of events to subscribers of their superclasses and 
+	 * implemented interfaces. Subscribers are ordered by their priority 
+	 * first, thus a supertype subscriber with higher priority is called 
+	 * before subscribers of the exact event class. Among subscribers of 
+	 * equal priority, subscribers of the exact event class are called first,
+	 * followed by subscribers of superclasses and then of interfaces. 
+	 * Flattened type hierarchies are computed once per event class and are 
+	 * cached, thus posting in main thread still costs a single lookup. 
+	 * Sticky and produced events are replayed on registration to subscribers
+	 * of their exact class only. {@link #hasSubscribers(Class)} takes 
+	 * supertype subscribers into account too. This method 
+	 * must be called in main thread.
+	 * 
+	 * @param inheritance	<code>true</code> to enable event inheritance, 
+	 * 						default value is <code>false</code>
+	 * @return				this bus instance
+	 */
+	public TinyBus setEventInheritance(boolean inheritance) {
+		assertObjectAndWorkerThread(this);
+		if (mEventInheritance != inheritance) {
+			mEventInheritance = inheritance;
+			mDispatchPlans.clear();
+		}
+		return this;
+	}
+	
+	//-- time sliced processing
+	
+	/**
+	 * Limits the time a single pass, processing queued tasks, may block 
+	 * the main thread. When the budget is exhausted, remaining tasks are 
+	 * processed in the next message of main thread's <code>Looper</code>, 
+	 * in the same order as they were queued. Subscriber calls are never 
+	 * interrupted, thus a single slow subscriber can still exceed the budget.
+	 * 
+	 * <p>Note, that with a budget set, <code>post()</code> or 
+	 * <code>register()</code> calls can return before all subscribers are 
+	 * notified. Budget is ignored, if the bus was created in a thread 
+	 * without <code>Looper</code>. This method must be called in main thread.
+	 * 
+	 * @param budgetMillis	time budget in milliseconds, or 0 to process
+	 * 						all queued tasks at once, which is default 
+	 * @return				this bus instance
+	 */
+	public TinyBus setProcessingBudget(long budgetMillis) {
+		if (budgetMillis < 0) {
+			throw new IllegalArgumentException("Budget must not be negative: " + budgetMillis);
+		}
+		assertObjectAndWorkerThread(this);
+		mProcessingBudgetNanos = budgetMillis * 1000000L;
+		return this;
+	}
+	
+	/** 
+	 * Returns how many times processing yielded to the looper, because
+	 * the budget set by {@link #setProcessingBudget(long)} was exhausted. 
+	 */
+	public int getProcessingYieldsCount() {
+		return mProcessingYieldsCount;
+	}
+	
+	private void yieldProcessing() {
+		mProcessingYieldsCount++;
+		if (!mContinuationScheduled) {
+			mContinuationScheduled = true;
+			mMainHandler.post(mImpl.mContinueProcessingTask);
+		}
+	}
+	
+	//-- frame events
+	
+	/**
+	 * Sets scheduler used for delivering events to subscribers having 
+	 * <code>Subscribe.Mode.Frame</code> mode. This method must be called 
+	 * in main thread.
+	 * 
+	 * @param scheduler		scheduler or <code>null</code> to restore default 
+	 * 						scheduler posting to main thread's <code>Handler</code>. If 
+	 * 						the bus has no <code>Looper</code>, default scheduler delivers 
+	 * 						events once all queued tasks are processed.
+	 * @return				this bus instance
+	 */
+	public TinyBus setFrameScheduler(FrameScheduler scheduler) {
+		if (mMainThread != Thread.currentThread()) {
+			throw new IllegalStateException("You must call this method from the same thread, "
+					+ "in which TinyBus was created. Created: " + mMainThread 
+					+ ", current thread: " + Thread.currentThread());
+		}
+		mFrameScheduler = scheduler;
+		return this;
+	}
+	
+	private void postFrameEvent(Class<?> eventClass, Object event) {
+		if (mFrameEvents == null) {
+			mFrameEvents = new LinkedHashMap<Class<?>, Object>();
+		}
+		// older event of same type gets replaced
+		mFrameEvents.put(eventClass, event);
+		
+		if (!mFrameScheduled) {
+			if (mFrameScheduler != null) {
+				mFrameScheduled = true;
+				mFrameScheduler.scheduleFrame(mImpl.mFrameTask);
+			} else if (mMainHandler != null) {
+				mFrameScheduled = true;
+				mMainHandler.post(mImpl.mFrameTask);
+			} // otherwise events are delivered when task queue is empty
+		}
+	}
+	
+	private Task pollFrameTask() {
+		if (mFrameScheduled || mFrameEvents == null || mFrameEvents.isEmpty()) {
+			return null;
+		}
+		final LinkedHashMap<Class<?>, Object> events = mFrameEvents;
+		mFrameEvents = null;
+		return Task.obtainTask(this, Task.CODE_DISPATCH_FRAME, events);
+	}
+	
+	//-- idle events
+	
+	/**
+	 * Sets maximum time events can wait for <code>Subscribe.Mode.Idle</code>
+	 * subscribers, if main thread does not become idle. This method must be 
+	 * called in main thread.
+	 * 
+	 * @param maxDeferralMillis		maximum deferral in milliseconds, default value
+	 * 								is {@link #DEFAULT_MAX_IDLE_DEFERRAL_MILLIS}
+	 * @return						this bus instance
+	 */
+	public TinyBus setMaxIdleDeferral(long maxDeferralMillis) {
+		if (maxDeferralMillis < 0) {
+			throw new IllegalArgumentException("Deferral must not be negative: " + maxDeferralMillis);
+		}
+		assertObjectAndWorkerThread(this);
+		mMaxIdleDeferralMillis = maxDeferralMillis;
+		return this;
+	}
+	
+	private void postIdleEvent(Object event) {
+		if (mIdleEvents == null) {
+			mIdleEvents = new ArrayList<Object>();
+		}
+		mIdleEvents.add(event);
+		
+		if (!mIdleScheduled && mMainQueue != null) {
+			mIdleScheduled = true;
+			mMainQueue.addIdleHandler(mImpl.mIdleHandler);
+			mMainHandler.postDelayed(mImpl.mIdleDeadlineTask, mMaxIdleDeferralMillis);
+		} // otherwise events are delivered when task queue is empty
+	}
+	
+	private Task pollIdleTask() {
+		if (mMainQueue != null || mIdleEvents == null) {
+			return null;
+		}
+		final ArrayList<Object> events = mIdleEvents;
+		mIdleEvents = null;
+		return Task.obtainTask(this, Task.CODE_DISPATCH_IDLE, events);
+	}
+	
 	//-- wireable implementation
 	
 	public TinyBus wire(Wireable wireable) {
@@ -315,7 +799,16 @@ public class TinyBus implements Bus {
 		}
 	}
 	
-	private RuntimeException handleExceptionOnEventDispatch(Exception e) {
+	private void assertObjectsAndWorkerThread(Object[] objs) {
+		assertObjectAndWorkerThread(objs);
+		for (Object obj : objs) {
+			if (obj == null) {
+				throw new NullPointerException("Object must not be null");
+			}
+		}
+	}
+	
+	static RuntimeException handleExceptionOnEventDispatch(Exception e) {
 		if (e instanceof RuntimeException) {
 			return (RuntimeException) e;
 		}
@@ -336,26 +829,36 @@ public class TinyBus implements Bus {
 		Object obj;
 		Class<?> objClass;
 		
+		final long deadline = mProcessingBudgetNanos > 0 && mMainHandler != null
+				? System.nanoTime() + mProcessingBudgetNanos : 0;
+		
 		mProcessing = true;
 		try {
 			
-			while((task = mTaskQueue.poll()) != null) {
+			while((task = mTaskQueue.poll()) != null 
+					|| (task = pollFrameTask()) != null
+					|| (task = pollIdleTask()) != null) {
 				obj = task.obj;
 				objClass = obj.getClass();
 				
 				switch (task.code) {
 				
 					case Task.CODE_REGISTER: {
-						meta = OBJECTS_METAS.get(objClass);
-						if (meta == null) {
-							meta = new ObjectsMeta(obj);
-							OBJECTS_METAS.put(objClass, meta);
+						meta = getObjectsMeta(obj);
+						try {
+							meta.registerAtReceivers(obj, mEventSubscribers, mImpl);
+							meta.registerAtProducers(obj, mEventProducers);
+						} finally {
+							// receivers might be registered, even if producers failed
+							invalidateDispatchPlans(meta);
+							meta.updateWorkerPlans(mEventSubscribers, OBJECTS_METAS, mWorkerPlans);
 						}
-						meta.registerAtReceivers(obj, mEventSubscribers);
-						meta.registerAtProducers(obj, mEventProducers);
+						addDemandCallbacks(obj);
 						try {
-							meta.dispatchEvents(obj, mEventSubscribers, OBJECTS_METAS, mImpl);
-							meta.dispatchEvents(mEventProducers, obj, OBJECTS_METAS, mImpl);
+							meta.dispatchEvents(obj, mEventSubscribers, OBJECTS_METAS, 
+									mProducedEvents, mImpl);
+							meta.dispatchEvents(mEventProducers, mStickyEvents, obj, OBJECTS_METAS, 
+									mProducedEvents, mImpl);
 						} catch (Exception e) {
 							throw handleExceptionOnEventDispatch(e);
 						}
@@ -364,51 +867,391 @@ public class TinyBus implements Bus {
 					
 					case Task.CODE_UNREGISTER: {
 						meta = OBJECTS_METAS.get(objClass);
-						meta.unregisterFromReceivers(obj, mEventSubscribers);
-						meta.unregisterFromProducers(obj, mEventProducers);
+						removeDemandCallbacks(obj);
+						try {
+							meta.unregisterFromReceivers(obj, mEventSubscribers, mImpl);
+							meta.unregisterFromProducers(obj, mEventProducers);
+						} finally {
+							invalidateDispatchPlans(meta);
+							meta.updateWorkerPlans(mEventSubscribers, OBJECTS_METAS, mWorkerPlans);
+						}
+						meta.forgetProducedEvents(mProducedEvents);
+						break;
+					}
+					
+					case Task.CODE_REGISTER_ALL: {
+						final Object[] objs = (Object[]) obj;
+						final HashSet<Class<?>> eventClasses = new HashSet<Class<?>>();
+						final HashSet<Class<?>> workerEventClasses = new HashSet<Class<?>>();
+						try {
+							for (Object o : objs) {
+								meta = getObjectsMeta(o);
+								meta.collectSubscribedClasses(eventClasses, workerEventClasses);
+								meta.registerAtReceivers(o, mEventSubscribers, mImpl);
+								meta.registerAtProducers(o, mEventProducers);
+								addDemandCallbacks(o);
+							}
+						} finally {
+							updatePlans(eventClasses, workerEventClasses);
+						}
+						try {
+							dispatchEventsToRegistered(objs);
+						} catch (Exception e) {
+							throw handleExceptionOnEventDispatch(e);
+						}
+						break;
+					}
+					
+					case Task.CODE_UNREGISTER_ALL: {
+						final Object[] objs = (Object[]) obj;
+						final HashSet<Class<?>> eventClasses = new HashSet<Class<?>>();
+						final HashSet<Class<?>> workerEventClasses = new HashSet<Class<?>>();
+						try {
+							for (Object o : objs) {
+								meta = OBJECTS_METAS.get(o.getClass());
+								meta.collectSubscribedClasses(eventClasses, workerEventClasses);
+								removeDemandCallbacks(o);
+								meta.unregisterFromReceivers(o, mEventSubscribers, mImpl);
+								meta.unregisterFromProducers(o, mEventProducers);
+								meta.forgetProducedEvents(mProducedEvents);
+							}
+						} finally {
+							updatePlans(eventClasses, workerEventClasses);
+						}
 						break;
 					}
 					
-					case Task.CODE_POST: {
-						final HashSet<Object> receivers = mEventSubscribers.get(objClass);
-						if (receivers != null) {
-							SubscriberCallback subscriberCallback;
-							try {
-								for (Object receiver : receivers) {
-									meta = OBJECTS_METAS.get(receiver.getClass());
-									subscriberCallback = meta.getEventCallback(objClass);
-									mImpl.dispatchEvent(subscriberCallback, receiver, obj);
+					case Task.CODE_DISPATCH_FRAME: {
+						@SuppressWarnings("unchecked")
+						final Map<Class<?>, Object> events = (Map<Class<?>, Object>) obj;
+						try {
+							for (Map.Entry<Class<?>, Object> entry : events.entrySet()) {
+								// use actual plan, subscribers might have changed since post
+								DispatchPlan plan = getDispatchPlan(entry.getKey());
+								int size = plan.frameReceivers.length;
+								for (int i = 0; i < size; i++) {
+									plan.frameCallbacks[i].method.invoke(
+											plan.frameReceivers[i], entry.getValue());
 								}
-							} catch (Exception e) {
-								throw handleExceptionOnEventDispatch(e);
 							}
+						} catch (Exception e) {
+							throw handleExceptionOnEventDispatch(e);
 						}
 						break;
 					}
 					
+					case Task.CODE_DISPATCH_IDLE: {
+						@SuppressWarnings("unchecked")
+						final ArrayList<Object> events = (ArrayList<Object>) obj;
+						try {
+							for (Object event : events) {
+								// use actual plan, subscribers might have changed since post
+								DispatchPlan plan = getDispatchPlan(event.getClass());
+								int size = plan.idleReceivers.length;
+								for (int i = 0; i < size; i++) {
+									plan.idleCallbacks[i].method.invoke(plan.idleReceivers[i], event);
+								}
+							}
+						} catch (Exception e) {
+							throw handleExceptionOnEventDispatch(e);
+						}
+						break;
+					}
+					
+					case Task.CODE_POST_STICKY_FROM_BACKGROUND:
+					case Task.CODE_POST_STICKY:
+						mStickyEvents.put(obj);
+						dispatchPost(task);
+						break;
+						
+					case Task.CODE_POST_FROM_BACKGROUND:
+					case Task.CODE_POST:
+						dispatchPost(task);
+						break;
+					
 					default: throw new IllegalStateException("unexpected task code: " + task.code);
 				}
 				task.recycle();
+				
+				if (deadline != 0 && !mTaskQueue.isEmpty() && System.nanoTime() >= deadline) {
+					// continue with remaining tasks in next looper message
+					yieldProcessing();
+					break;
+				}
 			}
 			
 		} finally {
+			mProducedEvents.clear();
+			mDeliveredEvent = null;
 			mProcessing = false;
 		}		
 	}
 	
+	/** Delivers posted event to subscribers it has not been dispatched to yet. */
+	private void dispatchPost(Task task) {
+		final Object obj = task.obj;
+		final Class<?> objClass = obj.getClass();
+		
+		if (!mProducedEvents.isEmpty()) {
+			// producer's state is likely to be changed by this event
+			mProducedEvents.remove(objClass);
+		}
+		
+		DispatchPlan plan = task.eventId == -1 ? getDispatchPlan(objClass) 
+				: getDispatchPlan(objClass, task.eventId);
+		final boolean postedInMainThread = task.code == Task.CODE_POST 
+				|| task.code == Task.CODE_POST_STICKY;
+		
+		int size;
+		try {
+			if (postedInMainThread) {
+				// otherwise already dispatched in posting thread
+				size = plan.postingReceivers.length;
+				for (int i = 0; i < size; i++) {
+					plan.postingCallbacks[i].method.invoke(plan.postingReceivers[i], obj);
+				}
+			}
+			
+			// main receivers can cancel delivery to remaining receivers
+			mDeliveredEvent = obj;
+			mDeliveryCanceled = false;
+			size = plan.mainReceivers.length;
+			for (int i = 0; i < size && !mDeliveryCanceled; i++) {
+				plan.mainCallbacks[i].method.invoke(plan.mainReceivers[i], obj);
+			}
+			mDeliveredEvent = null;
+		} catch (Exception e) {
+			throw handleExceptionOnEventDispatch(e);
+		}
+		
+		if (mDeliveryCanceled) {
+			return;
+		}
+		
+		if (postedInMainThread) {
+			// otherwise already dispatched in posting thread
+			size = plan.backgroundReceivers.length;
+			for (int i = 0; i < size; i++) {
+				mImpl.dispatchEventToBackground(
+						plan.backgroundCallbacks[i], plan.backgroundReceivers[i], obj);
+			}
+		}
+		
+		if (plan.frameReceivers.length > 0) {
+			postFrameEvent(objClass, obj);
+		}
+		
+		if (plan.idleReceivers.length > 0) {
+			postIdleEvent(obj);
+		}
+	}
+	
+	private DispatchPlan getDispatchPlan(Class<?> eventClass) {
+		return getDispatchPlan(eventClass, EventIds.getId(eventClass));
+	}
+	
+	private DispatchPlan getDispatchPlan(Class<?> eventClass, int id) {
+		DispatchPlan plan = mDispatchPlans.get(id);
+		if (plan == null) {
+			if (mEventInheritance) {
+				plan = DispatchPlan.create(EventTypes.getTypes(eventClass), 
+						mEventSubscribers, OBJECTS_METAS);
+			} else {
+				plan = DispatchPlan.create(eventClass, id, mEventSubscribers.get(id), OBJECTS_METAS);
+			}
+			mDispatchPlans.put(id, plan);
+		}
+		return plan;
+	}
+	
+	private void invalidateDispatchPlans(ObjectsMeta meta) {
+		if (mEventInheritance) {
+			// plans of event subtypes are affected too, but they are unknown to meta
+			mDispatchPlans.clear();
+		} else {
+			meta.invalidateDispatchPlans(mDispatchPlans);
+		}
+	}
+	
+	/** 
+	 * Invalidates dispatch plans and updates worker plans of given event 
+	 * classes, after several objects have been registered or unregistered.
+	 */
+	private void updatePlans(Set<Class<?>> eventClasses, Set<Class<?>> workerEventClasses) {
+		if (mEventInheritance) {
+			// plans of event subtypes are affected too, but they are unknown here
+			mDispatchPlans.clear();
+		}
+		int id;
+		for (Class<?> eventClass : eventClasses) {
+			id = EventIds.getId(eventClass);
+			if (!mEventInheritance) {
+				mDispatchPlans.remove(id);
+			}
+			if (workerEventClasses.contains(eventClass) || mWorkerPlans.containsKey(eventClass)) {
+				ObjectsMeta.updateWorkerPlan(eventClass, id, mEventSubscribers.get(id), 
+						OBJECTS_METAS, mWorkerPlans);
+			}
+		}
+	}
+	
+	private void addDemandCallbacks(Object obj) {
+		if (obj instanceof DemandCallbacks) {
+			if (mDemandCallbacks == null) {
+				mDemandCallbacks = new ArrayList<DemandCallbacks>();
+			}
+			mDemandCallbacks.add((DemandCallbacks) obj);
+		}
+	}
+	
+	private void removeDemandCallbacks(Object obj) {
+		if (obj instanceof DemandCallbacks && mDemandCallbacks != null) {
+			mDemandCallbacks.remove(obj);
+		}
+	}
+	
+	private static ObjectsMeta getObjectsMeta(Object obj) {
+		return ObjectsMeta.getObjectsMeta(obj.getClass(), OBJECTS_METAS);
+	}
+	
+	/** 
+	 * Replays sticky and produced events after given objects have been 
+	 * registered. Every event type is processed only once.
+	 */
+	private void dispatchEventsToRegistered(Object[] objs) throws Exception {
+		
+		final LinkedHashSet<Class<?>> eventClasses = new LinkedHashSet<Class<?>>();
+		final IdentityHashMap<Object, ObjectsMeta> registered 
+			= new IdentityHashMap<Object, ObjectsMeta>(objs.length);
+		
+		ObjectsMeta meta;
+		for (Object obj : objs) {
+			meta = OBJECTS_METAS.get(obj.getClass());
+			meta.collectEventClasses(eventClasses);
+			registered.put(obj, meta);
+		}
+		
+		Object producer;
+		Object stickyEvent;
+		Object producedEvent;
+		Object event;
+		boolean newProducer;
+		HashSet<Object> receivers;
+		SubscriberCallback[] subscriberCallbacks;
+		
+		int id;
+		for (Class<?> eventClass : eventClasses) {
+			id = EventIds.getId(eventClass);
+			receivers = mEventSubscribers.get(id);
+			if (receivers == null || receivers.isEmpty()) {
+				continue; // nobody is interested in this event type
+			}
+			
+			producer = mEventProducers.get(id);
+			newProducer = producer != null && registered.containsKey(producer);
+			stickyEvent = mStickyEvents.get(eventClass);
+			
+			producedEvent = null;
+			if (producer != null && (newProducer || stickyEvent == null)) {
+				producedEvent = OBJECTS_METAS.get(producer.getClass())
+						.produceEvent(producer, eventClass, mProducedEvents);
+			}
+			
+			if (newProducer && producedEvent != null) {
+				// new producer delivers its event to already registered subscribers
+				for (Object receiver : receivers) {
+					if (!registered.containsKey(receiver)) {
+						meta = OBJECTS_METAS.get(receiver.getClass());
+						for (SubscriberCallback callback : meta.getEventCallbacks(eventClass, id)) {
+							mImpl.dispatchEvent(callback, receiver, producedEvent);
+						}
+					}
+				}
+			}
+			
+			event = stickyEvent != null ? stickyEvent : producedEvent;
+			if (event != null) {
+				// new subscribers receive sticky or produced event
+				for (Object obj : objs) {
+					subscriberCallbacks = registered.get(obj).getEventCallbacks(eventClass, id);
+					if (subscriberCallbacks != null) {
+						for (SubscriberCallback callback : subscriberCallbacks) {
+							mImpl.dispatchEvent(callback, obj, event);
+						}
+					}
+				}
+			}
+		}
+	}
+	
 	public LifecycleCallbacks getLifecycleCallbacks() {
 		return mImpl;
 	}
 	
 	//-- inner tinybus implementation used extended features and callbacks
 	
-	class TinyBusImpl implements EventDispatchCallback, LifecycleCallbacks, TaskCallbacks {
+	class TinyBusImpl implements EventDispatchCallback, ReceiversCallback, 
+			LifecycleCallbacks, TaskCallbacks {
 
-		private WeakReference<Context> mContextRef;
+		private volatile WeakReference<Context> mContextRef;
 
         // list of delayed tasks accessed from different threads
 		private HashMap<Class<?>, Task> mDelayedTasks;
 		
+		// continues processing after it has yielded
+		final Runnable mContinueProcessingTask = new Runnable() {
+			@Override
+			public void run() {
+				mContinuationScheduled = false;
+				if (!mProcessing) processQueue();
+			}
+		};
+		
+		// delivers idle events when main thread is idle
+		final IdleHandler mIdleHandler = new IdleHandler() {
+			@Override
+			public boolean queueIdle() {
+				mMainHandler.removeCallbacks(mIdleDeadlineTask);
+				onIdle();
+				return false;
+			}
+		};
+		
+		// delivers idle events, if main thread did not become idle in time
+		final Runnable mIdleDeadlineTask = new Runnable() {
+			@Override
+			public void run() {
+				mMainQueue.removeIdleHandler(mIdleHandler);
+				onIdle();
+			}
+		};
+		
+		private void onIdle() {
+			mIdleScheduled = false;
+			if (mIdleEvents == null) {
+				return; // bus was destroyed meanwhile
+			}
+			final ArrayList<Object> events = mIdleEvents;
+			mIdleEvents = null;
+			mTaskQueue.offer(Task.obtainTask(TinyBus.this, Task.CODE_DISPATCH_IDLE, events));
+			if (!mProcessing) processQueue();
+		}
+		
+		// delivers events buffered for next frame
+		final Runnable mFrameTask = new Runnable() {
+			@Override
+			public void run() {
+				mFrameScheduled = false;
+				if (mFrameEvents == null || mFrameEvents.isEmpty()) {
+					return; // bus was destroyed meanwhile
+				}
+				final LinkedHashMap<Class<?>, Object> events = mFrameEvents;
+				mFrameEvents = null;
+				mTaskQueue.offer(Task.obtainTask(TinyBus.this, Task.CODE_DISPATCH_FRAME, events));
+				if (!mProcessing) processQueue();
+			}
+		};
+		
 		//-- delayed events
 		
 		public void postDelayed(Object event, long delayMillis, Handler handler) {
@@ -427,7 +1270,7 @@ public class TinyBus implements Bus {
                     task.obj = event;
                 }
             }
-			handler.postDelayed(task, delayMillis);
+			postToMainThread(handler, task, delayMillis);
 		}
 
 		public void cancelDelayed(Class<?> eventClass, Handler handler) {
@@ -448,18 +1291,55 @@ public class TinyBus implements Bus {
 		@Override
 		public void dispatchEvent(SubscriberCallback subscriberCallback, Object receiver, Object event) throws Exception {
 			if (subscriberCallback.mode == Mode.Background) {
-				Task task = Task.obtainTask(TinyBus.this, Task.CODE_DISPATCH_TO_BACKGROUND, event)
-						.setTaskCallbacks(this);
-				task.subscriberCallback = subscriberCallback;
-				task.receiverRef = new WeakReference<Object>(receiver);
-				
-				Context context = getNotNullContext();
-				TinyBusDepot.get(context).getDispatcher().dispatchEventToBackground(task);
-				
+				dispatchEventToBackground(subscriberCallback, receiver, event);
 			} else {
-				subscriberCallback.method.invoke(receiver, event);
+				// cancellation is accepted, but only applies to posted events
+				final Object deliveredEvent = mDeliveredEvent;
+				final boolean deliveryCanceled = mDeliveryCanceled;
+				mDeliveredEvent = event;
+				try {
+					subscriberCallback.method.invoke(receiver, event);
+				} finally {
+					mDeliveredEvent = deliveredEvent;
+					mDeliveryCanceled = deliveryCanceled;
+				}
+			}
+		}
+		
+		@Override
+		public void onFirstReceiver(Class<?> eventClass) {
+			mSubscribedEventClasses.add(eventClass);
+			if (mDemandCallbacks != null) {
+				// demand callbacks are likely to change producer's state
+				mProducedEvents.clear();
+				for (DemandCallbacks callbacks : mDemandCallbacks) {
+					callbacks.onFirstSubscriber(eventClass);
+				}
+			}
+		}
+		
+		@Override
+		public void onLastReceiverGone(Class<?> eventClass) {
+			mSubscribedEventClasses.remove(eventClass);
+			if (mDemandCallbacks != null) {
+				// demand callbacks are likely to change producer's state
+				mProducedEvents.clear();
+				for (DemandCallbacks callbacks : mDemandCallbacks) {
+					callbacks.onLastSubscriberGone(eventClass);
+				}
 			}
 		}
+		
+		public void dispatchEventToBackground(SubscriberCallback subscriberCallback, 
+				Object receiver, Object event) {
+			Task task = Task.obtainTask(TinyBus.this, Task.CODE_DISPATCH_TO_BACKGROUND, event)
+					.setTaskCallbacks(this);
+			task.subscriberCallback = subscriberCallback;
+			task.receiverRef = new WeakReference<Object>(receiver);
+			
+			Context context = getNotNullContext();
+			TinyBusDepot.get(context).getDispatcher().dispatchEventToBackground(task);
+		}
 
 		/**
 		 * This method gets called when bus is transferred from 
@@ -509,6 +1389,9 @@ public class TinyBus implements Bus {
                     mDelayedTasks.clear();
                 }
             }
+            mStickyEvents.clear();
+            mFrameEvents = null;
+            mIdleEvents = null;
 		}
 		
 		public Context getNotNullContext() {
@@ -524,7 +1407,8 @@ public class TinyBus implements Bus {
 		
 		@Override
 		public void onPostFromBackground(Task task) {
-			task.code = Task.CODE_POST;
+			task.code = task.code == Task.CODE_DISPATCH_STICKY_FROM_BACKGROUND 
+					? Task.CODE_POST_STICKY_FROM_BACKGROUND : Task.CODE_POST_FROM_BACKGROUND;
 			mTaskQueue.offer(task);
 			if (!mProcessing) processQueue();
 		}
@@ -541,17 +1425,7 @@ public class TinyBus implements Bus {
 
 		@Override
 		public void onDispatchInBackground(Task task) throws Exception {
-			final Object receiver = task.receiverRef.get();
-			if (receiver != null) {
-				Method callbackMethod = task.subscriberCallback.method;
-				if (callbackMethod.getParameterTypes().length == 2) {
-					// expect callback with two parameters
-					callbackMethod.invoke(receiver, task.obj, task.bus);
-				} else {
-					// expect callback with a single parameter
-					callbackMethod.invoke(receiver, task.obj);
-				}
-			}
+			task.dispatchToReceiver();
 		}
 		
 	}
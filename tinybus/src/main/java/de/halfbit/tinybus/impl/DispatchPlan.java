@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2014, 2015 Sergej Shafarenka, halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.tinybus.impl;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+import de.halfbit.tinybus.Subscribe.Mode;
+import de.halfbit.tinybus.impl.ObjectsMeta.SubscriberCallback;
+
+/**
+ * Flat arrays of receivers and their callbacks for a single event class,
+ * split into receivers called in main thread, once per frame, when main 
+ * thread is idle, in background and in posting thread. Plan is created 
+ * once and is reused for every posted event until a receiver of this 
+ * event class gets registered or unregistered. Plan is not modified 
+ * after it is published, thus it can be read from any thread.
+ */
+public class DispatchPlan {
+
+	private static final int MODES_NUMBER = 5;
+	
+	public static final DispatchPlan EMPTY = new DispatchPlan(new int[MODES_NUMBER]);
+
+	public final Object[] mainReceivers;
+	public final SubscriberCallback[] mainCallbacks;
+
+	public final Object[] frameReceivers;
+	public final SubscriberCallback[] frameCallbacks;
+	
+	public final Object[] idleReceivers;
+	public final SubscriberCallback[] idleCallbacks;
+	
+	public final Object[] backgroundReceivers;
+	public final SubscriberCallback[] backgroundCallbacks;
+
+	public final Object[] postingReceivers;
+	public final SubscriberCallback[] postingCallbacks;
+	
+	private DispatchPlan(int[] sizes) {
+		mainReceivers = new Object[sizes[Mode.Main]];
+		mainCallbacks = new SubscriberCallback[sizes[Mode.Main]];
+		frameReceivers = new Object[sizes[Mode.Frame]];
+		frameCallbacks = new SubscriberCallback[sizes[Mode.Frame]];
+		idleReceivers = new Object[sizes[Mode.Idle]];
+		idleCallbacks = new SubscriberCallback[sizes[Mode.Idle]];
+		backgroundReceivers = new Object[sizes[Mode.Background]];
+		backgroundCallbacks = new SubscriberCallback[sizes[Mode.Background]];
+		postingReceivers = new Object[sizes[Mode.Posting]];
+		postingCallbacks = new SubscriberCallback[sizes[Mode.Posting]];
+	}
+
+	/** 
+	 * Returns <code>true</code> if there are receivers, which get events
+	 * posted in a worker thread without going through main thread. 
+	 */
+	public boolean hasWorkerReceivers() {
+		return postingReceivers.length > 0 || backgroundReceivers.length > 0;
+	}
+	
+	/** Returns <code>true</code> if there are receivers called in main thread. */
+	public boolean hasMainThreadReceivers() {
+		return mainReceivers.length > 0 || frameReceivers.length > 0 
+				|| idleReceivers.length > 0;
+	}
+	
+	public static DispatchPlan create(Class<?> eventClass, int eventId, HashSet<Object> receivers,
+			HashMap<Class<? extends Object>, ObjectsMeta> metas) {
+
+		if (receivers == null || receivers.isEmpty()) {
+			return EMPTY;
+		}
+
+		int size = 0;
+		for (Object receiver : receivers) {
+			size += metas.get(receiver.getClass()).getEventCallbacks(eventClass, eventId).length;
+		}
+		
+		final Object[] allReceivers = new Object[size];
+		final SubscriberCallback[] allCallbacks = new SubscriberCallback[size];
+
+		int index = 0;
+		for (Object receiver : receivers) {
+			// receiver appears once per its callback
+			for (SubscriberCallback callback : metas.get(receiver.getClass())
+					.getEventCallbacks(eventClass, eventId)) {
+				allReceivers[index] = receiver;
+				allCallbacks[index++] = callback;
+			}
+		}
+		return create(allReceivers, allCallbacks, size);
+	}
+
+	/** 
+	 * Creates plan for an event, which is delivered to receivers of all 
+	 * given event types. Receivers of the first type are called first. 
+	 */
+	public static DispatchPlan create(Class<?>[] eventTypes, EventTable<HashSet<Object>> receivers,
+			HashMap<Class<? extends Object>, ObjectsMeta> metas) {
+		
+		int size = 0;
+		int typeId;
+		HashSet<Object> typeReceivers;
+		final int[] typeIds = new int[eventTypes.length];
+		for (int i = 0; i < eventTypes.length; i++) {
+			typeId = typeIds[i] = EventIds.getId(eventTypes[i]);
+			typeReceivers = receivers.get(typeId);
+			if (typeReceivers != null) {
+				for (Object receiver : typeReceivers) {
+					size += metas.get(receiver.getClass())
+							.getEventCallbacks(eventTypes[i], typeId).length;
+				}
+			}
+		}
+		
+		if (size == 0) {
+			return EMPTY;
+		}
+		
+		final Object[] allReceivers = new Object[size];
+		final SubscriberCallback[] allCallbacks = new SubscriberCallback[size];
+		
+		int index = 0;
+		for (int i = 0; i < eventTypes.length; i++) {
+			typeReceivers = receivers.get(typeIds[i]);
+			if (typeReceivers != null) {
+				for (Object receiver : typeReceivers) {
+					for (SubscriberCallback callback : metas.get(receiver.getClass())
+							.getEventCallbacks(eventTypes[i], typeIds[i])) {
+						allReceivers[index] = receiver;
+						allCallbacks[index++] = callback;
+					}
+				}
+			}
+		}
+		return create(allReceivers, allCallbacks, size);
+	}
+	
+	private static DispatchPlan create(Object[] allReceivers, 
+			SubscriberCallback[] allCallbacks, int size) {
+		
+		final int[] sizes = new int[MODES_NUMBER];
+		for (int i = 0; i < size; i++) {
+			sizes[allCallbacks[i].mode]++;
+		}
+		
+		final DispatchPlan plan = new DispatchPlan(sizes);
+		final int[] indexes = new int[MODES_NUMBER];
+		int index;
+		int mode;
+		for (int i = 0; i < size; i++) {
+			mode = allCallbacks[i].mode;
+			index = indexes[mode]++;
+			plan.getReceivers(mode)[index] = allReceivers[i];
+			plan.getCallbacks(mode)[index] = allCallbacks[i];
+		}
+		
+		for (mode = 0; mode < MODES_NUMBER; mode++) {
+			sortByPriority(plan.getReceivers(mode), plan.getCallbacks(mode));
+		}
+		return plan;
+	}
+	
+	/** 
+	 * Sorts receivers by priority of their callbacks, highest priority first.
+	 * Insertion sort is stable and fast for mostly sorted small arrays.
+	 */
+	private static void sortByPriority(Object[] receivers, SubscriberCallback[] callbacks) {
+		Object receiver;
+		SubscriberCallback callback;
+		int j;
+		for (int i = 1; i < callbacks.length; i++) {
+			receiver = receivers[i];
+			callback = callbacks[i];
+			for (j = i - 1; j >= 0 && callbacks[j].priority < callback.priority; j--) {
+				receivers[j + 1] = receivers[j];
+				callbacks[j + 1] = callbacks[j];
+			}
+			receivers[j + 1] = receiver;
+			callbacks[j + 1] = callback;
+		}
+	}
+
+	private Object[] getReceivers(int mode) {
+		switch (mode) {
+			case Mode.Background: return backgroundReceivers;
+			case Mode.Frame: return frameReceivers;
+			case Mode.Idle: return idleReceivers;
+			case Mode.Posting: return postingReceivers;
+			default: return mainReceivers;
+		}
+	}
+	
+	private SubscriberCallback[] getCallbacks(int mode) {
+		switch (mode) {
+			case Mode.Background: return backgroundCallbacks;
+			case Mode.Frame: return frameCallbacks;
+			case Mode.Idle: return idleCallbacks;
+			case Mode.Posting: return postingCallbacks;
+			default: return mainCallbacks;
+		}
+	}
+	
+}
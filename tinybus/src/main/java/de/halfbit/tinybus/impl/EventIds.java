@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2014, 2015 Sergej Shafarenka, halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.tinybus.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global registry assigning a dense integer id to every event class,
+ * when the class is seen for the first time. Ids start from zero and
+ * never change, thus they can be used as indexes in {@link EventTable}.
+ *
+ * <p>This class can be accessed from any thread.
+ */
+public class EventIds {
+
+	private static final ConcurrentHashMap<Class<?>, Integer> IDS
+		= new ConcurrentHashMap<Class<?>, Integer>();
+	
+	// guarded by IDS
+	private static int sNextId;
+	
+	public static int getId(Class<?> eventClass) {
+		Integer id = IDS.get(eventClass);
+		if (id == null) {
+			synchronized (IDS) {
+				id = IDS.get(eventClass);
+				if (id == null) {
+					id = sNextId++;
+					IDS.put(eventClass, id);
+				}
+			}
+		}
+		return id;
+	}
+	
+	/** 
+	 * Returns id of given event class, or -1 if the class has not been seen 
+	 * yet. Unlike {@link #getId(Class)}, this method never assigns an id.
+	 */
+	public static int findId(Class<?> eventClass) {
+		final Integer id = IDS.get(eventClass);
+		return id == null ? -1 : id;
+	}
+	
+	/** Returns number of ids assigned so far. */
+	public static int size() {
+		synchronized (IDS) {
+			return sNextId;
+		}
+	}
+	
+}
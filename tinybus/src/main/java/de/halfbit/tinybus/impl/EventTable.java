@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2014, 2015 Sergej Shafarenka, halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.tinybus.impl;
+
+import java.util.Arrays;
+
+/**
+ * Table of values indexed by event class ids assigned by {@link EventIds}.
+ * Lookups are plain array accesses without hashing, and there is no
+ * per entry overhead. Table grows when a value for a larger id is put.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class EventTable<V> {
+
+	private Object[] mValues;
+	private int mSize;
+	
+	public EventTable() {
+		mValues = new Object[Math.max(16, EventIds.size())];
+	}
+	
+	@SuppressWarnings("unchecked")
+	public V get(int id) {
+		return id < mValues.length ? (V) mValues[id] : null;
+	}
+	
+	/** Puts value and returns the value previously stored for this id. */
+	public V put(int id, V value) {
+		if (value == null) {
+			return remove(id);
+		}
+		if (id >= mValues.length) {
+			final Object[] values = new Object[Math.max(id + 1, mValues.length * 2)];
+			System.arraycopy(mValues, 0, values, 0, mValues.length);
+			mValues = values;
+		}
+		final V previous = get(id);
+		mValues[id] = value;
+		if (previous == null) {
+			mSize++;
+		}
+		return previous;
+	}
+	
+	/** Removes value and returns it, or <code>null</code> if there was no value. */
+	public V remove(int id) {
+		final V previous = get(id);
+		if (previous != null) {
+			mValues[id] = null;
+			mSize--;
+		}
+		return previous;
+	}
+	
+	public void clear() {
+		if (mSize > 0) {
+			Arrays.fill(mValues, null);
+			mSize = 0;
+		}
+	}
+	
+	public boolean isEmpty() {
+		return mSize == 0;
+	}
+	
+	public int size() {
+		return mSize;
+	}
+	
+}
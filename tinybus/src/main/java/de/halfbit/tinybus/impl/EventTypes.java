@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2014, 2015 Sergej Shafarenka, halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.tinybus.impl;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of flattened type hierarchies of event classes. A hierarchy
+ * contains the event class itself first, followed by its superclasses 
+ * and all implemented interfaces. <code>Object</code> is not included.
+ * Hierarchy of a class is computed once and is reused afterwards.
+ *
+ * <p>This class can be accessed from any thread.
+ */
+public class EventTypes {
+
+	private static final ConcurrentHashMap<Class<?>, Class<?>[]> TYPES
+		= new ConcurrentHashMap<Class<?>, Class<?>[]>();
+	
+	public static Class<?>[] getTypes(Class<?> eventClass) {
+		Class<?>[] types = TYPES.get(eventClass);
+		if (types == null) {
+			final ArrayList<Class<?>> list = new ArrayList<Class<?>>();
+			Class<?> type = eventClass;
+			while (type != null && type != Object.class) {
+				addType(type, list);
+				type = type.getSuperclass();
+			}
+			
+			// interfaces go after classes, as class subscribers are more specific
+			type = eventClass;
+			while (type != null && type != Object.class) {
+				addInterfaces(type, list);
+				type = type.getSuperclass();
+			}
+			
+			types = list.toArray(new Class<?>[list.size()]);
+			TYPES.put(eventClass, types);
+		}
+		return types;
+	}
+	
+	private static void addInterfaces(Class<?> type, ArrayList<Class<?>> list) {
+		for (Class<?> iface : type.getInterfaces()) {
+			addType(iface, list);
+			addInterfaces(iface, list);
+		}
+	}
+	
+	private static void addType(Class<?> type, ArrayList<Class<?>> list) {
+		if (!list.contains(type)) {
+			list.add(type);
+		}
+	}
+	
+}
@@ -16,13 +16,17 @@
 package de.halfbit.tinybus.impl;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import de.halfbit.tinybus.Produce;
 import de.halfbit.tinybus.Subscribe;
+import de.halfbit.tinybus.Subscribe.Mode;
 
 public class ObjectsMeta {
 
@@ -31,14 +35,20 @@ public class ObjectsMeta {
 	public static class SubscriberCallback {
 		
 		public SubscriberCallback(Method method, Subscribe ann) {
+			if (ann.mode() < Mode.Main || ann.mode() > Mode.Posting) {
+				throw new IllegalArgumentException("Unknown subscriber mode " 
+						+ ann.mode() + " in method " + method);
+			}
 			this.method = method;
 			this.mode = ann.mode();
 			this.queue = ann.queue();
+			this.priority = ann.priority();
 		}
 		
 		public final Method method;
 		public final int mode;
 		public final String queue;
+		public final int priority;
 	}
 	
 	/** Implementation of this callback handles actual event dispatching. */
@@ -47,80 +57,447 @@ public class ObjectsMeta {
                            Object receiver, Object event) throws Exception;
 	}
 	
+	/** Implementation of this callback gets notified about first and last receivers of event types. */
+	public static interface ReceiversCallback {
+		void onFirstReceiver(Class<?> eventClass);
+		void onLastReceiverGone(Class<?> eventClass);
+	}
+	
 	//-- implementation
 	
-	private final HashMap<Class<? extends Object>/*event class*/, SubscriberCallback> mEventCallbacks
-		= new HashMap<Class<? extends Object>, SubscriberCallback>();
+	// marks memoized null results of producers
+	private static final Object NULL_EVENT = new Object();
+	
+	private static final Class<?>[] NO_CLASSES = new Class<?>[0];
+	private static final int[] NO_IDS = new int[0];
+	private static final Method[] NO_METHODS = new Method[0];
+	private static final SubscriberCallback[][] NO_CALLBACKS = new SubscriberCallback[0][];
+	
+	// up to this size arrays are searched linearly, binary search by id is used otherwise
+	private static final int MAX_LINEAR_SEARCH_SIZE = 8;
 	
-	private HashMap<Class<? extends Object>/*event class*/, Method> mProducerCallbacks;
+	// parallel arrays of subscribed event classes, their ids and callbacks sorted by id,
+	// there can be several callbacks for the same event class
+	private final Class<?>[] mEventClasses;
+	private final int[] mEventIds;
+	private final SubscriberCallback[][] mEventCallbacks;
+	
+	// parallel arrays of produced event classes, their ids and producer methods sorted by id
+	private final Class<?>[] mProducedClasses;
+	private final int[] mProducedIds;
+	private final Method[] mProducerMethods;
+	
+	/**
+	 * Returns cached meta of given class or creates a new one. Metas of 
+	 * superclasses are created and cached too, thus methods of every class 
+	 * in a hierarchy are scanned only once.
+	 */
+	public static ObjectsMeta getObjectsMeta(Class<?> clazz, 
+			HashMap<Class<? extends Object>, ObjectsMeta> metas) {
+		ObjectsMeta meta = metas.get(clazz);
+		if (meta == null) {
+			final Class<?> superclass = clazz.getSuperclass();
+			final ObjectsMeta superMeta = isApplicationClass(superclass) 
+					? getObjectsMeta(superclass, metas) : null;
+			meta = new ObjectsMeta(clazz, superMeta);
+			metas.put(clazz, meta);
+		}
+		return meta;
+	}
 	
-	public ObjectsMeta(Object obj) {
-		final Method[] methods = obj.getClass().getMethods();
+	private static boolean isApplicationClass(Class<?> clazz) {
+		if (clazz == null) {
+			return false;
+		}
+		// framework classes have no annotated methods, no need to scan them
+		final String name = clazz.getName();
+		return !name.startsWith("java.") && !name.startsWith("javax.") 
+				&& !name.startsWith("android.");
+	}
+	
+	/**
+	 * Creates meta of given class by scanning methods declared in this class
+	 * only. Inherited subscribers and producers are taken from the meta of 
+	 * superclass. Methods overridden in this class replace inherited ones,
+	 * and if an overriding method has no annotation, the inherited method 
+	 * is not called anymore. Annotated methods may have any visibility.
+	 * 
+	 * @param clazz			class to create meta for
+	 * @param superMeta		meta of superclass or <code>null</code>
+	 */
+	public ObjectsMeta(Class<?> clazz, ObjectsMeta superMeta) {
+		final ArrayList<Class<?>> eventClasses = new ArrayList<Class<?>>();
+		final ArrayList<SubscriberCallback> eventCallbacks = new ArrayList<SubscriberCallback>();
+		final ArrayList<Class<?>> producedClasses = new ArrayList<Class<?>>();
+		final ArrayList<Method> producerMethods = new ArrayList<Method>();
+		
+		if (superMeta != null) {
+			for (int i = 0; i < superMeta.mEventClasses.length; i++) {
+				for (SubscriberCallback callback : superMeta.mEventCallbacks[i]) {
+					eventClasses.add(superMeta.mEventClasses[i]);
+					eventCallbacks.add(callback);
+				}
+			}
+			producedClasses.addAll(Arrays.asList(superMeta.mProducedClasses));
+			producerMethods.addAll(Arrays.asList(superMeta.mProducerMethods));
+		}
 		
-		Class<?>[] params;
-		SubscriberCallback callback;
+		boolean changed = false;
 		Subscribe ann;
-		for (Method method : methods) {
+		for (Method method : clazz.getDeclaredMethods()) {
 			if (method.isBridge() || method.isSynthetic()) {
 				continue;
 			}
 			
+			if (superMeta != null) {
+				for (int i = eventCallbacks.size() - 1; i >= 0; i--) {
+					if (isOverridden(eventCallbacks.get(i).method, method)) {
+						eventClasses.remove(i);
+						eventCallbacks.remove(i);
+						changed = true;
+					}
+				}
+				for (int i = producerMethods.size() - 1; i >= 0; i--) {
+					if (isOverridden(producerMethods.get(i), method)) {
+						producedClasses.remove(i);
+						producerMethods.remove(i);
+						changed = true;
+					}
+				}
+			}
+			
 			ann = method.getAnnotation(Subscribe.class);
 			if (ann != null) {
-				params = method.getParameterTypes();
-				callback = mEventCallbacks.put(params[0], new SubscriberCallback(method, ann));
-				if (callback != null) {
-					throw new IllegalArgumentException("Only one @Subscriber can be defined "
-							+ "for one event type in the same class. Event type: " 
-							+ params[0] + ". Class: " + obj.getClass());
-				}
+				method.setAccessible(true);
+				eventClasses.add(method.getParameterTypes()[0]);
+				eventCallbacks.add(new SubscriberCallback(method, ann));
+				changed = true;
 				
 			} else if (method.isAnnotationPresent(Produce.class)) {
-				if (mProducerCallbacks == null) {
-					mProducerCallbacks = new HashMap<Class<? extends Object>, Method>();
+				method.setAccessible(true);
+				producedClasses.add(method.getReturnType());
+				producerMethods.add(method);
+				changed = true;
+			}
+		}
+		
+		if (superMeta != null && !changed) {
+			// nothing to add, reuse immutable arrays of superclass
+			mEventClasses = superMeta.mEventClasses;
+			mEventIds = superMeta.mEventIds;
+			mEventCallbacks = superMeta.mEventCallbacks;
+			mProducedClasses = superMeta.mProducedClasses;
+			mProducedIds = superMeta.mProducedIds;
+			mProducerMethods = superMeta.mProducerMethods;
+			return;
+		}
+		
+		if (eventClasses.isEmpty()) {
+			mEventClasses = NO_CLASSES;
+			mEventIds = NO_IDS;
+			mEventCallbacks = NO_CALLBACKS;
+		} else {
+			// group callbacks of same event class together
+			final ArrayList<Class<?>> groupClasses = new ArrayList<Class<?>>();
+			for (Class<?> eventClass : eventClasses) {
+				if (!groupClasses.contains(eventClass)) {
+					groupClasses.add(eventClass);
 				}
-				mProducerCallbacks.put(method.getReturnType(), method);
+			}
+			
+			final int groupsCount = groupClasses.size();
+			mEventClasses = groupClasses.toArray(new Class<?>[groupsCount]);
+			mEventIds = getIds(mEventClasses);
+			mEventCallbacks = new SubscriberCallback[groupsCount][];
+			for (int i = 0; i < groupsCount; i++) {
+				mEventCallbacks[i] = getCallbacks(mEventClasses[i], eventClasses, eventCallbacks);
+			}
+			sortById(mEventIds, mEventClasses, mEventCallbacks);
+		}
+		
+		final int producersCount = producedClasses.size();
+		if (producersCount == 0) {
+			mProducedClasses = NO_CLASSES;
+			mProducedIds = NO_IDS;
+			mProducerMethods = NO_METHODS;
+		} else {
+			mProducedClasses = producedClasses.toArray(new Class<?>[producersCount]);
+			mProducedIds = getIds(mProducedClasses);
+			mProducerMethods = producerMethods.toArray(new Method[producersCount]);
+			sortById(mProducedIds, mProducedClasses, mProducerMethods);
+		}
+	}
+	
+	private static SubscriberCallback[] getCallbacks(Class<?> eventClass, 
+			ArrayList<Class<?>> eventClasses, ArrayList<SubscriberCallback> eventCallbacks) {
+		
+		int count = 0;
+		for (Class<?> clazz : eventClasses) {
+			if (clazz == eventClass) {
+				count++;
 			}
 		}
+		final SubscriberCallback[] callbacks = new SubscriberCallback[count];
+		count = 0;
+		for (int i = 0; i < eventClasses.size(); i++) {
+			if (eventClasses.get(i) == eventClass) {
+				callbacks[count++] = eventCallbacks.get(i);
+			}
+		}
+		return callbacks;
+	}
+	
+	/** Returns <code>true</code> if given method overrides inherited method. */
+	private static boolean isOverridden(Method inherited, Method method) {
+		final int modifiers = inherited.getModifiers();
+		if (Modifier.isPrivate(modifiers) || Modifier.isStatic(method.getModifiers())
+				|| !inherited.getName().equals(method.getName())) {
+			return false;
+		}
+		if (!Modifier.isPublic(modifiers) && !Modifier.isProtected(modifiers)) {
+			// package private methods are overridden in the same package only
+			final Package inheritedPackage = inherited.getDeclaringClass().getPackage();
+			if (inheritedPackage != method.getDeclaringClass().getPackage()) {
+				return false;
+			}
+		}
+		return Arrays.equals(inherited.getParameterTypes(), method.getParameterTypes());
+	}
+	
+	private static int[] getIds(Class<?>[] eventClasses) {
+		final int[] ids = new int[eventClasses.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = EventIds.getId(eventClasses[i]);
+		}
+		return ids;
+	}
+	
+	/** Sorts parallel arrays by ids using insertion sort, which is fast for small arrays. */
+	private static void sortById(int[] ids, Class<?>[] classes, Object[] values) {
+		int id;
+		Class<?> eventClass;
+		Object value;
+		int j;
+		for (int i = 1; i < ids.length; i++) {
+			id = ids[i];
+			eventClass = classes[i];
+			value = values[i];
+			for (j = i - 1; j >= 0 && ids[j] > id; j--) {
+				ids[j + 1] = ids[j];
+				classes[j + 1] = classes[j];
+				values[j + 1] = values[j];
+			}
+			ids[j + 1] = id;
+			classes[j + 1] = eventClass;
+			values[j + 1] = value;
+		}
+	}
+	
+	private static int indexOf(Class<?> eventClass, Class<?>[] classes, int size) {
+		for (int i = 0; i < size; i++) {
+			if (classes[i] == eventClass) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	private static int indexOf(Class<?> eventClass, Class<?>[] classes, int[] ids) {
+		if (classes.length <= MAX_LINEAR_SEARCH_SIZE) {
+			return indexOf(eventClass, classes, classes.length);
+		}
+		return indexOf(EventIds.findId(eventClass), ids);
+	}
+	
+	private static int indexOf(int eventId, int[] ids) {
+		if (eventId == -1) {
+			return -1; // unknown event class
+		}
+		final int index = Arrays.binarySearch(ids, eventId);
+		return index < 0 ? -1 : index;
+	}
+
+	/** 
+	 * Returns callbacks subscribed to given event class, or <code>null</code> 
+	 * if there are no callbacks. Returned array must not be modified.
+	 */
+	public SubscriberCallback[] getEventCallbacks(Class<?> eventClass) {
+		final int index = indexOf(eventClass, mEventClasses, mEventIds);
+		return index == -1 ? null : mEventCallbacks[index];
+	}
+	
+	/** 
+	 * Same as {@link #getEventCallbacks(Class)}, but uses already resolved 
+	 * id of the event class, or -1 if the class has no id yet.
+	 */
+	public SubscriberCallback[] getEventCallbacks(Class<?> eventClass, int eventId) {
+		final int index = mEventClasses.length <= MAX_LINEAR_SEARCH_SIZE 
+				? indexOf(eventClass, mEventClasses, mEventClasses.length)
+				: indexOf(eventId, mEventIds);
+		return index == -1 ? null : mEventCallbacks[index];
 	}
 
-	public SubscriberCallback getEventCallback(Class<?> eventClass) {
-		return mEventCallbacks.get(eventClass);
+	private Method getProducerMethod(Class<?> eventClass) {
+		final int index = indexOf(eventClass, mProducedClasses, mProducedIds);
+		return index == -1 ? null : mProducerMethods[index];
+	}
+
+	/** Adds event classes this object subscribes to and produces. */
+	public void collectEventClasses(Set<Class<? extends Object>> eventClasses) {
+		for (Class<?> eventClass : mEventClasses) {
+			eventClasses.add(eventClass);
+		}
+		for (Class<?> eventClass : mProducedClasses) {
+			eventClasses.add(eventClass);
+		}
+	}
+	
+	/** 
+	 * Adds event classes this object subscribes to. Classes having callbacks 
+	 * called in posting thread or in background are added to 
+	 * <code>workerEventClasses</code> too.
+	 */
+	public void collectSubscribedClasses(Set<Class<? extends Object>> eventClasses,
+			Set<Class<? extends Object>> workerEventClasses) {
+		for (int i = 0; i < mEventClasses.length; i++) {
+			eventClasses.add(mEventClasses[i]);
+			if (hasWorkerCallbacks(mEventCallbacks[i])) {
+				workerEventClasses.add(mEventClasses[i]);
+			}
+		}
+	}
+	
+	/** Removes dispatch plans of event classes this object subscribes to. */
+	public void invalidateDispatchPlans(EventTable<DispatchPlan> dispatchPlans) {
+		if (dispatchPlans.isEmpty()) {
+			return; // nothing to invalidate
+		}
+		for (int id : mEventIds) {
+			dispatchPlans.remove(id);
+		}
+	}
+	
+	public boolean hasProducers() {
+		return mProducerMethods.length > 0;
+	}
+	
+	public boolean hasSubscribersInMode(int mode) {
+		for (SubscriberCallback[] callbacks : mEventCallbacks) {
+			for (SubscriberCallback callback : callbacks) {
+				if (callback.mode == mode) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	/** 
+	 * Rebuilds plans of all event classes this object subscribes to. Plans 
+	 * of event classes without receivers are removed.
+	 */
+	public void rebuildDispatchPlans(
+			EventTable<HashSet<Object>> receivers,
+			HashMap<Class<? extends Object>, ObjectsMeta> metas,
+			ConcurrentHashMap<Class<? extends Object>, DispatchPlan> dispatchPlans) {
+		
+		DispatchPlan plan;
+		Class<?> eventClass;
+		for (int i = 0; i < mEventIds.length; i++) {
+			eventClass = mEventClasses[i];
+			plan = DispatchPlan.create(eventClass, mEventIds[i], 
+					receivers.get(mEventIds[i]), metas);
+			if (plan == DispatchPlan.EMPTY) {
+				dispatchPlans.remove(eventClass);
+			} else {
+				dispatchPlans.put(eventClass, plan);
+			}
+		}
+	}
+	
+	/** 
+	 * Rebuilds plans of event classes this object subscribes to, if they
+	 * have or had receivers called in posting thread or in background. 
+	 * Such plans are read from worker threads, thus they are kept up to 
+	 * date eagerly.
+	 */
+	public void updateWorkerPlans(
+			EventTable<HashSet<Object>> receivers,
+			HashMap<Class<? extends Object>, ObjectsMeta> metas,
+			ConcurrentHashMap<Class<? extends Object>, DispatchPlan> workerPlans) {
+		
+		Class<?> eventClass;
+		for (int i = 0; i < mEventIds.length; i++) {
+			eventClass = mEventClasses[i];
+			if (hasWorkerCallbacks(mEventCallbacks[i]) || workerPlans.containsKey(eventClass)) {
+				updateWorkerPlan(eventClass, mEventIds[i], receivers.get(mEventIds[i]), 
+						metas, workerPlans);
+			}
+		}
+	}
+	
+	/** 
+	 * Rebuilds worker plan of given event class, or removes it, if there 
+	 * are no receivers called in posting thread or in background anymore.
+	 */
+	public static void updateWorkerPlan(Class<?> eventClass, int eventId,
+			HashSet<Object> eventReceivers,
+			HashMap<Class<? extends Object>, ObjectsMeta> metas,
+			ConcurrentHashMap<Class<? extends Object>, DispatchPlan> workerPlans) {
+		
+		final DispatchPlan plan = DispatchPlan.create(eventClass, eventId, eventReceivers, metas);
+		if (plan.hasWorkerReceivers()) {
+			workerPlans.put(eventClass, plan);
+		} else {
+			workerPlans.remove(eventClass);
+		}
+	}
+	
+	private static boolean hasWorkerCallbacks(SubscriberCallback[] callbacks) {
+		for (SubscriberCallback callback : callbacks) {
+			if (callback.mode == Mode.Posting || callback.mode == Mode.Background) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	public Object produceEvent(Object producer, Class<? extends Object> eventClass,
+			HashMap<Class<? extends Object>, Object> producedEvents) throws Exception {
+		return produceEvent(eventClass, producer, getProducerMethod(eventClass), producedEvents);
 	}
 
 	public void dispatchEvents(
 			Object obj,
-			HashMap<Class<? extends Object>, HashSet<Object>> receivers,
+			EventTable<HashSet<Object>> receivers,
 			HashMap<Class<? extends Object>, ObjectsMeta> metas,
+			HashMap<Class<? extends Object>, Object> producedEvents,
 			EventDispatchCallback callback) throws Exception {
 		
-		if (mProducerCallbacks == null) {
+		if (mProducerMethods.length == 0) {
 			return; // there is no producers for this event type
 		}
 		
-		Iterator<Entry<Class<? extends Object>, Method>> 
-			producerCallbacks = mProducerCallbacks.entrySet().iterator();
-
 		Object event;
 		ObjectsMeta meta;
 		HashSet<Object> targetReceivers;
 		Class<? extends Object> eventClass;
-		Entry<Class<? extends Object>, Method> producerCallback;
-		SubscriberCallback subscriberCallback;
+		SubscriberCallback[] subscriberCallbacks;
 		
-		while (producerCallbacks.hasNext()) {
-			producerCallback = producerCallbacks.next();
-			eventClass = producerCallback.getKey();
+		for (int i = 0; i < mProducedIds.length; i++) {
+			eventClass = mProducedClasses[i];
 			
-			targetReceivers = receivers.get(eventClass);
+			targetReceivers = receivers.get(mProducedIds[i]);
 			if (targetReceivers != null && targetReceivers.size() > 0) {
-				event = mProducerCallbacks.get(eventClass).invoke(obj);
+				event = produceEvent(eventClass, obj, mProducerMethods[i], producedEvents);
 				if (event != null) {
 					for (Object receiver : targetReceivers) {
 						meta = metas.get(receiver.getClass());
-						subscriberCallback = meta.mEventCallbacks.get(eventClass);
-						if (subscriberCallback != null) {
-							callback.dispatchEvent(subscriberCallback, receiver, event);
+						subscriberCallbacks = meta.getEventCallbacks(eventClass);
+						if (subscriberCallbacks != null) {
+							for (SubscriberCallback subscriberCallback : subscriberCallbacks) {
+								callback.dispatchEvent(subscriberCallback, receiver, event);
+							}
 						}
 					}
 				}
@@ -130,49 +507,78 @@ public class ObjectsMeta {
 	}
 
 	public void dispatchEvents(
-			HashMap<Class<? extends Object>, Object> producers,
+			EventTable<Object> producers,
+			StickyEvents stickyEvents,
 			Object receiver,
 			HashMap<Class<? extends Object>, ObjectsMeta> metas,
+			HashMap<Class<? extends Object>, Object> producedEvents,
 			EventDispatchCallback callback) throws Exception {
 
-		Iterator<Class<? extends Object>> 
-			eventClasses = mEventCallbacks.keySet().iterator();
-		
 		Object event;
 		ObjectsMeta meta;
 		Object producer;
 		Class<? extends Object> eventClass;
-		SubscriberCallback subscriberCallback;
 		
-		while (eventClasses.hasNext()) {
-			eventClass = eventClasses.next();
-			producer = producers.get(eventClass);
-			if (producer != null) {
-				meta = metas.get(producer.getClass());
-				event = meta.mProducerCallbacks.get(eventClass).invoke(producer);
-				if (event != null) {
-					subscriberCallback = mEventCallbacks.get(eventClass);
-					if (subscriberCallback != null) {
-						callback.dispatchEvent(subscriberCallback, receiver, event);
-					}
+		for (int i = 0; i < mEventIds.length; i++) {
+			eventClass = mEventClasses[i];
+			
+			// sticky event has priority, producer is not called then
+			event = stickyEvents.get(eventClass);
+			if (event == null) {
+				producer = producers.get(mEventIds[i]);
+				if (producer != null) {
+					meta = metas.get(producer.getClass());
+					event = produceEvent(eventClass, producer, 
+							meta.getProducerMethod(eventClass), producedEvents);
+				}
+			}
+			
+			if (event != null) {
+				for (SubscriberCallback subscriberCallback : mEventCallbacks[i]) {
+					callback.dispatchEvent(subscriberCallback, receiver, event);
 				}
 			}
 		}
 
 	}
 
-	public void unregisterFromProducers(Object obj,
-			HashMap<Class<? extends Object>, Object>producers) {
+	/** 
+	 * Calls producer method only once and reuses its result until it gets 
+	 * removed from <code>producedEvents</code>.
+	 */
+	private static Object produceEvent(Class<? extends Object> eventClass, Object producer,
+			Method producerCallback, HashMap<Class<? extends Object>, Object> producedEvents) 
+					throws Exception {
+		
+		Object event = producedEvents.get(eventClass);
+		if (event == null) {
+			event = producerCallback.invoke(producer);
+			producedEvents.put(eventClass, event == null ? NULL_EVENT : event);
+			
+		} else if (event == NULL_EVENT) {
+			event = null;
+		}
+		return event;
+	}
+	
+	public void forgetProducedEvents(HashMap<Class<? extends Object>, Object> producedEvents) {
+		if (mProducerMethods.length == 0 || producedEvents.isEmpty()) {
+			return; // nothing to forget
+		}
+		
+		for (Class<?> eventClass : mProducedClasses) {
+			producedEvents.remove(eventClass);
+		}
+	}
+	
+	public void unregisterFromProducers(Object obj, EventTable<Object> producers) {
 		
-		if (mProducerCallbacks == null) {
+		if (mProducerMethods.length == 0) {
 			return; // no need to unregister, as there is no @Produce methods 
 		}
 		
-		Class<? extends Object> key;
-		final Iterator<Class<? extends Object>> keys = mProducerCallbacks.keySet().iterator();
-		while (keys.hasNext()) {
-			key = keys.next();
-			if (producers.remove(key) == null) {
+		for (int id : mProducedIds) {
+			if (producers.remove(id) == null) {
 				throw new IllegalArgumentException(
 						"Unable to unregister producer, because it wasn't registered before, " + obj);
 			}
@@ -180,18 +586,15 @@ public class ObjectsMeta {
 	}
 
 	public boolean hasRegisteredObject(Object obj, 
-			HashMap<Class<? extends Object>, HashSet<Object>> receivers,
-			HashMap<Class<? extends Object>, Object> producers) {
+			EventTable<HashSet<Object>> receivers,
+			EventTable<Object> producers) {
 
 		boolean registered = false;
-		
-		Iterator<Class<? extends Object>> keys;
 		HashSet<Object> eventReceivers;
 		
 		// check receivers
-		keys = mEventCallbacks.keySet().iterator();
-		while (keys.hasNext()) {
-			eventReceivers = receivers.get(keys.next());
+		for (int id : mEventIds) {
+			eventReceivers = receivers.get(id);
 			if (eventReceivers != null) {
 				registered = eventReceivers.contains(obj);
 				if (registered) {
@@ -202,10 +605,9 @@ public class ObjectsMeta {
 
 		if (!registered) {
 			// check producers
-			if (mProducerCallbacks != null) {
-				keys = mProducerCallbacks.keySet().iterator();
-				while (keys.hasNext()) {
-					registered = producers.containsKey(keys.next());
+			if (producers != null) {
+				for (int id : mProducedIds) {
+					registered = producers.get(id) == obj;
 					if (registered) {
 						break;
 					}
@@ -216,18 +618,14 @@ public class ObjectsMeta {
 		return registered;
 	}
 	
-	public void registerAtProducers(Object obj,
-			HashMap<Class<? extends Object>, Object> producers) {
+	public void registerAtProducers(Object obj, EventTable<Object> producers) {
 
-		if (mProducerCallbacks == null) {
+		if (mProducerMethods.length == 0) {
 			return; // this object has no @Produce methods
 		}
 		
-		Class<? extends Object> key;
-		final Iterator<Class<? extends Object>> keys = mProducerCallbacks.keySet().iterator();
-		while (keys.hasNext()) {
-			key = keys.next();
-			if (producers.put(key, obj) != null) {
+		for (int id : mProducedIds) {
+			if (producers.put(id, obj) != null) {
 				throw new IllegalArgumentException(
 						"Unable to register producer, because another producer is already registered, " + obj);
 			}
@@ -235,37 +633,34 @@ public class ObjectsMeta {
 	}
 
 	public void registerAtReceivers(Object obj,
-			HashMap<Class<? extends Object>, HashSet<Object>> receivers) {
+			EventTable<HashSet<Object>> receivers,
+			ReceiversCallback callback) {
 		
-		Iterator<Class<? extends Object>> keys = mEventCallbacks.keySet().iterator();
-		
-		Class<? extends Object> key;
 		HashSet<Object> eventReceivers;
-		
-		while (keys.hasNext()) {
-			key = keys.next();
-			eventReceivers = receivers.get(key);
+		for (int i = 0; i < mEventIds.length; i++) {
+			eventReceivers = receivers.get(mEventIds[i]);
 			if (eventReceivers == null) {
 				eventReceivers = new HashSet<Object>();
-				receivers.put(key, eventReceivers);
+				receivers.put(mEventIds[i], eventReceivers);
 			}
 			if (!eventReceivers.add(obj)) {
 				throw new IllegalArgumentException(
 						"Unable to registered receiver because it has already been registered: " + obj);
 			}
+			if (eventReceivers.size() == 1) {
+				callback.onFirstReceiver(mEventClasses[i]);
+			}
 		}
 	}
 
 	public void unregisterFromReceivers(Object obj,
-			HashMap<Class<? extends Object>, HashSet<Object>> receivers) {
-		Iterator<Class<? extends Object>> keys = mEventCallbacks.keySet().iterator();
+			EventTable<HashSet<Object>> receivers,
+			ReceiversCallback callback) {
 		
-		Class<? extends Object> key;
 		HashSet<Object> eventReceivers;
 		boolean fail;
-		while (keys.hasNext()) {
-			key = keys.next();
-			eventReceivers = receivers.get(key);
+		for (int i = 0; i < mEventIds.length; i++) {
+			eventReceivers = receivers.get(mEventIds[i]);
 			if (eventReceivers == null) {
 				fail = true;
 			} else {
@@ -275,6 +670,9 @@ public class ObjectsMeta {
 				throw new IllegalArgumentException(
 						"Unregistering receiver which was not registered before: " + obj);
 			}
+			if (eventReceivers.isEmpty()) {
+				callback.onLastReceiverGone(mEventClasses[i]);
+			}
 		}
 	}
 }	
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2014, 2015 Sergej Shafarenka, halfbit.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.halfbit.tinybus.impl;
+
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/**
+ * Cache keeping the latest sticky event per event class. Least recently
+ * used events are evicted first, when the cache exceeds its maximum size.
+ *
+ * <p>This class can be accessed from any thread.
+ */
+public class StickyEvents {
+
+	public static final int DEFAULT_MAX_SIZE = Integer.MAX_VALUE;
+
+	private final LinkedHashMap<Class<?>, Object/*event or WeakReference*/> mEvents
+		= new LinkedHashMap<Class<?>, Object>(8, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Entry<Class<?>, Object> eldest) {
+				return size() > mMaxSize;
+			}
+		};
+
+	private int mMaxSize = DEFAULT_MAX_SIZE;
+	private boolean mWeakValues;
+
+	public synchronized void configure(int maxSize, boolean weakValues) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Max size must be positive, actual: " + maxSize);
+		}
+		mMaxSize = maxSize;
+		mWeakValues = weakValues;
+		mEvents.clear();
+	}
+
+	public synchronized void put(Object event) {
+		mEvents.put(event.getClass(), mWeakValues ? new WeakReference<Object>(event) : event);
+	}
+
+	public synchronized Object get(Class<?> eventClass) {
+		if (mEvents.isEmpty()) {
+			return null;
+		}
+		Object event = mEvents.get(eventClass);
+		if (event instanceof WeakReference) {
+			event = ((WeakReference<?>) event).get();
+			if (event == null) {
+				mEvents.remove(eventClass); // event has been garbage collected
+			}
+		}
+		return event;
+	}
+
+	public synchronized void remove(Class<?> eventClass) {
+		mEvents.remove(eventClass);
+	}
+
+	public synchronized void clear() {
+		mEvents.clear();
+	}
+
+}
@@ -16,8 +16,9 @@
 package de.halfbit.tinybus.impl;
 
 import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
 
-import de.halfbit.tinybus.TinyBus;
+import de.halfbit.tinybus.Bus;
 import de.halfbit.tinybus.impl.ObjectsMeta.SubscriberCallback;
 
 public class Task implements Runnable {
@@ -34,26 +35,39 @@ public class Task implements Runnable {
 	public static final int CODE_UNREGISTER = 1;
 	public static final int CODE_POST = 2;
 	public static final int CODE_POST_DELAYED = 3;
+	public static final int CODE_POST_STICKY = 4;
+	public static final int CODE_REGISTER_ALL = 5;
+	public static final int CODE_UNREGISTER_ALL = 6;
+	public static final int CODE_DISPATCH_FRAME = 7;
+	public static final int CODE_DISPATCH_IDLE = 8;
 	
 	public static final int CODE_DISPATCH_FROM_BACKGROUND = 10;
 	public static final int CODE_DISPATCH_TO_BACKGROUND = 11;
+	public static final int CODE_DISPATCH_STICKY_FROM_BACKGROUND = 12;
+	
+	// posted from background, posting and background subscribers are already notified
+	public static final int CODE_POST_FROM_BACKGROUND = 13;
+	public static final int CODE_POST_STICKY_FROM_BACKGROUND = 14;
 	
 	// task as linked list
 	public Task prev;
 	
 	// general purpose
-	public TinyBus bus;
+	public Bus bus;
 	public int code;
 	public Object obj;
 	public TaskCallbacks callbacks;
 	
+	// id of posted event class, if resolved when posting, otherwise -1
+	public int eventId;
+	
 	// dispatch in background
 	public SubscriberCallback subscriberCallback;
 	public WeakReference<Object> receiverRef;
 	
 	private Task() { }
 	
-	public static Task obtainTask(TinyBus bus, int code, Object obj) {
+	public static Task obtainTask(Bus bus, int code, Object obj) {
 		Task task;
 		synchronized (POOL) {
 			task = POOL.acquire();
@@ -61,6 +75,7 @@ public class Task implements Runnable {
 		task.bus = bus;
 		task.code = code;
 		task.obj = obj;
+		task.eventId = -1;
 		task.prev = null;
 		return task;
 	}
@@ -79,11 +94,27 @@ public class Task implements Runnable {
 		}
 	}
 
+	/** Calls subscriber in current thread, if receiver has not been garbage collected. */
+	public void dispatchToReceiver() throws Exception {
+		final Object receiver = receiverRef.get();
+		if (receiver != null) {
+			Method callbackMethod = subscriberCallback.method;
+			if (callbackMethod.getParameterTypes().length == 2) {
+				// expect callback with two parameters
+				callbackMethod.invoke(receiver, obj, bus);
+			} else {
+				// expect callback with a single parameter
+				callbackMethod.invoke(receiver, obj);
+			}
+		}
+	}
+	
 	@Override
 	public void run() {
 		switch (code) {
 
 			case CODE_DISPATCH_FROM_BACKGROUND:
+			case CODE_DISPATCH_STICKY_FROM_BACKGROUND:
 				callbacks.onPostFromBackground(this);
 				break;
 
@@ -42,7 +42,7 @@ public class TinyBusDepot implements ActivityLifecycleCallbacks {
 	private static final String KEY_BUS_ID = "de.halfbit.tinybus.id";
 	private static TinyBusDepot INSTANCE;
 	
-	public static TinyBusDepot get(Context context) {
+	public static synchronized TinyBusDepot get(Context context) {
 		if (INSTANCE == null) {
 			INSTANCE = new TinyBusDepot(context);
 		}